@@ -0,0 +1,452 @@
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * An immutable list of words to play with.
+ * The words are upper-cased and packed back to back in one byte array with an offset per word, instead of keeping a
+ * String for every word. They are sorted by length, then by number of distinct letters, then alphabetically, so the
+ * words sharing a length (or a length and a number of distinct letters) sit next to each other and a random word from
+ * such a bucket can be picked in constant time.
+ * <p>
+ * The arrays are held as buffers, so a dictionary compiled ahead of time with DictionarySnapshot can be memory mapped
+ * and used in place instead of being rebuilt.
+ */
+public final class Dictionary implements WordSource {
+    public static final int MAX_WORD_LENGTH = 64;
+    static final int BUCKETS_PER_LENGTH = 27; //0 to 26 distinct letters
+    static final int BUCKETS = (MAX_WORD_LENGTH + 1) * BUCKETS_PER_LENGTH;
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final AtomicReference<Dictionary> defaultDictionary = new AtomicReference<>();
+
+    private final int size;
+    private final ByteBuffer letters;
+    private final IntBuffer offsets;
+    private final IntBuffer letterMasks;
+    private final int[] bucketStart;
+    private final int[] wordsWithLetter;
+    private volatile long fingerprint;  //0 until worked out
+
+    /**
+     * @param letters         every word's letters back to back, followed by 7 bytes of padding.
+     * @param offsets         where each word starts in letters, and one more entry for where the last word ends.
+     * @param letterMasks     each word's letterMask().
+     * @param bucketStart     the first word in each bucket, and one more entry for the number of words.
+     * @param wordsWithLetter how many words have each letter, A first.
+     */
+    Dictionary(ByteBuffer letters, IntBuffer offsets, IntBuffer letterMasks, int[] bucketStart, int[] wordsWithLetter) {
+        this.size = letterMasks.limit();
+        this.letters = letters;
+        this.offsets = offsets;
+        this.letterMasks = letterMasks;
+        this.bucketStart = bucketStart;
+        this.wordsWithLetter = wordsWithLetter;
+    }
+
+    /**
+     * Gets the default dictionary, loaded only the first time this is called. If there is a words.dict compiled from
+     * words.txt (and not older than it), it is memory mapped, which takes no time however many words there are.
+     * Otherwise words.txt is read. A DictionaryWatcher can swap in a new one later, so callers that need the same
+     * words for a whole game should hold on to the one they got rather than call this again.
+     * @return
+     * @throws IOException if there is no words.txt or it can't be read.
+     */
+    public static Dictionary getDefault() throws IOException {
+        Dictionary current = defaultDictionary.get();
+        return current != null ? current : loadDefault();
+    }
+
+    private static synchronized Dictionary loadDefault() throws IOException {
+        Dictionary loaded = defaultDictionary.get();
+        if (loaded != null) {
+            return loaded;  //Another thread got here first
+        }
+        HangmanEvents.DictionaryLoad event = new HangmanEvents.DictionaryLoad();
+        event.begin();
+        long start = System.nanoTime();
+        loaded = mapDefaultSnapshot();
+        event.compiled = loaded != null;
+        if (loaded == null) {
+            InputStream in = Dictionary.class.getResourceAsStream("words.txt");
+            if (in == null) {
+                throw new FileNotFoundException("words.txt");
+            }
+            loaded = read(in);
+        }
+        Metrics.DICTIONARY_LOAD_NANOS.recordSince(start);
+        event.words = loaded.size();
+        event.commit();
+        defaultDictionary.set(loaded);
+        return loaded;
+    }
+
+    /**
+     * Makes a new dictionary the default, unless the default was changed since expected was got.
+     * @param expected    the default the replacement was built to replace.
+     * @param replacement
+     * @return true if it was replaced.
+     */
+    static boolean replaceDefault(Dictionary expected, Dictionary replacement) {
+        return defaultDictionary.compareAndSet(expected, replacement);
+    }
+
+    /**
+     * @return the words.txt the default dictionary is read from, or null if it isn't a file (it's in a jar, say).
+     */
+    static Path defaultWordsPath() {
+        try {
+            URL words = Dictionary.class.getResource("words.txt");
+            return words != null && words.getProtocol().equals("file") ? Paths.get(words.toURI()) : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the mapped words.dict, or null if there isn't an up to date one that can be used.
+     */
+    private static Dictionary mapDefaultSnapshot() {
+        try {
+            URL snapshot = Dictionary.class.getResource("words.dict");
+            if (snapshot == null || !snapshot.getProtocol().equals("file")) {
+                return null;
+            }
+            Path snapshotPath = Paths.get(snapshot.toURI());
+            Path words = defaultWordsPath();
+            if (words != null) {
+                FileTime wordsModified = Files.getLastModifiedTime(words);
+                if (wordsModified.compareTo(Files.getLastModifiedTime(snapshotPath)) > 0) {
+                    return null;    //words.txt was changed since it was compiled
+                }
+            }
+            return DictionarySnapshot.map(snapshotPath);
+        } catch (IOException | URISyntaxException e) {
+            return null;    //Fall back to words.txt
+        }
+    }
+
+    /**
+     * Builds a dictionary from a stream with one word per line. The stream is closed afterwards.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static Dictionary read(InputStream in) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                words.add(line);
+            }
+        }
+        return of(words);
+    }
+
+    /**
+     * Builds a dictionary from a collection of words. Words are trimmed and upper-cased, duplicates are dropped, and
+     * anything that is empty, longer than MAX_WORD_LENGTH or has characters other than A-Z is skipped.
+     * @param words
+     * @return
+     */
+    public static Dictionary of(Collection<String> words) {
+        Set<String> normalized = new HashSet<>();
+        for (String word : words) {
+            String upper = word.trim().toUpperCase();
+            if (isValidWord(upper)) {
+                normalized.add(upper);
+            }
+        }
+        String[] unsorted = normalized.toArray(new String[0]);
+        int[] masks = new int[unsorted.length];
+        int[] buckets = new int[unsorted.length];
+        int[] bucketStart = new int[BUCKETS + 1];
+        int totalLetters = 0;
+        for (int i = 0; i < unsorted.length; i++) {
+            masks[i] = letterMask(unsorted[i]);
+            buckets[i] = bucket(unsorted[i].length(), Integer.bitCount(masks[i]));
+            bucketStart[buckets[i] + 1]++;
+            totalLetters += unsorted[i].length();
+        }
+        for (int i = 1; i < bucketStart.length; i++) { //Turn the bucket sizes into where each bucket starts
+            bucketStart[i] += bucketStart[i - 1];
+        }
+        //Put each word in its bucket, then sort the buckets alphabetically one at a time
+        String[] sorted = new String[unsorted.length];
+        int[] next = bucketStart.clone();
+        for (int i = 0; i < unsorted.length; i++) {
+            sorted[next[buckets[i]]++] = unsorted[i];
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            Arrays.sort(sorted, bucketStart[bucket], bucketStart[bucket + 1]);
+        }
+
+        byte[] letters = new byte[totalLetters + 7]; //Padding so positions() can always read 8 bytes at a time
+        int[] offsets = new int[sorted.length + 1];
+        int[] letterMasks = new int[sorted.length];
+        int[] wordsWithLetter = new int[26];
+        int position = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            String word = sorted[i];
+            offsets[i] = position;
+            for (int j = 0; j < word.length(); j++) {
+                letters[position++] = (byte) word.charAt(j);
+            }
+            letterMasks[i] = letterMask(word);
+            for (int left = letterMasks[i]; left != 0; left &= left - 1) {
+                wordsWithLetter[Integer.numberOfTrailingZeros(left)]++;
+            }
+        }
+        offsets[sorted.length] = position;
+        return new Dictionary(ByteBuffer.wrap(letters), IntBuffer.wrap(offsets), IntBuffer.wrap(letterMasks),
+                bucketStart, wordsWithLetter);
+    }
+
+    static boolean isValidWord(String word) {
+        if (word.isEmpty() || word.length() > MAX_WORD_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a 26 bit mask with a bit set for every letter in the word, bit 0 being A.
+     * @param word an upper-case word.
+     * @return
+     */
+    static int letterMask(String word) {
+        int mask = 0;
+        for (int i = 0; i < word.length(); i++) {
+            mask |= 1 << (word.charAt(i) - 'A');
+        }
+        return mask;
+    }
+
+    private static int bucketOf(String word) {
+        return bucket(word.length(), Integer.bitCount(letterMask(word)));
+    }
+
+    private static int bucket(int length, int distinctLetters) {
+        return length * BUCKETS_PER_LENGTH + distinctLetters;
+    }
+
+    public int size() { return size; }
+
+    public int length(int index) { return offsets.get(index + 1) - offsets.get(index); }
+
+    public char charAt(int index, int position) { return (char) letters.get(offsets.get(index) + position); }
+
+    public String word(int index) {
+        byte[] word = new byte[length(index)];
+        letters.get(offsets.get(index), word);
+        return new String(word, StandardCharsets.US_ASCII);
+    }
+
+    public int letterMask(int index) { return letterMasks.get(index); }
+
+    /**
+     * Gets a number that tells this dictionary's words from another's, for word indexes kept somewhere to say which
+     * dictionary they are indexes into. Dictionaries with the same words have the same fingerprint, however they were
+     * built. It's worked out from every letter the first time it's asked for, a few milliseconds for a million words.
+     * @return a hash of the words, never 0.
+     */
+    public long fingerprint() {
+        long fingerprint = this.fingerprint;
+        if (fingerprint == 0) {
+            fingerprint = size;
+            for (int i = 0; i <= size; i++) {   //Where the words start, then the letters, tell "AB C" from "A BC"
+                fingerprint = mixInto(fingerprint, offsets.get(i));
+            }
+            int end = offsets.get(size);
+            for (int i = 0; i < end; i += 8) {
+                long letters = (long) LONG_VIEW.get(this.letters, i);
+                fingerprint = mixInto(fingerprint, end - i >= 8 ? letters : letters & ((1L << (end - i) * 8) - 1));
+            }
+            fingerprint = fingerprint == 0 ? 1 : fingerprint;
+            this.fingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    private static long mixInto(long hash, long value) {
+        long x = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return x ^ (x >>> 29);
+    }
+
+    public int distinctLetters(int index) { return Integer.bitCount(letterMasks.get(index)); }
+
+    /**
+     * Gets how many words have the letter at least once.
+     * @param letter an upper-case letter.
+     * @return
+     */
+    public int wordsWithLetter(char letter) { return wordsWithLetter[letter - 'A']; }
+
+    /**
+     * Gets every position of a letter in a word.
+     * @param index  the word.
+     * @param letter an upper-case letter.
+     * @return a mask with bit 0 being the first letter of the word.
+     */
+    public long positions(int index, char letter) {
+        if ((letterMasks.get(index) & (1 << (letter - 'A'))) == 0) {
+            return 0;
+        }
+        int start = offsets.get(index);
+        int length = offsets.get(index + 1) - start;
+        long broadcast = (letter & 0xFFL) * 0x0101010101010101L;
+        long positions = 0;
+        for (int i = 0; i < length; i += 8) {   //Compare 8 letters at a time
+            long matches = zeroBytes((long) LONG_VIEW.get(letters, start + i) ^ broadcast);
+            positions |= (matches >>> 7) * 0x0102040810204080L >>> 56 << i;
+        }
+        return length == 64 ? positions : positions & ((1L << length) - 1);
+    }
+
+    /**
+     * Gets a long with the high bit of each byte set where that byte of x is zero, and every other bit clear.
+     */
+    private static long zeroBytes(long x) {
+        long y = (x & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(y | x | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    /**
+     * Finds where a word is in the dictionary by searching only the bucket it would be in.
+     * @param word in either case.
+     * @return the index of the word, or -1 if it isn't in the dictionary.
+     */
+    public int indexOf(String word) {
+        String upper = word.toUpperCase();
+        if (!isValidWord(upper)) {
+            return -1;
+        }
+        int bucket = bucketOf(upper);
+        int low = bucketStart[bucket];
+        int high = bucketStart[bucket + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compareTo(middle, upper);
+            if (compare < 0) {
+                low = middle + 1;
+            }
+            else if (compare > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTo(int index, String word) {
+        int start = offsets.get(index);
+        int length = length(index);
+        for (int i = 0; i < Math.min(length, word.length()); i++) {
+            int difference = letters.get(start + i) - word.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - word.length();
+    }
+
+    /**
+     * Index of the first word with the given length, words of that length run up to firstWithLength(length + 1).
+     * @param length
+     * @return
+     */
+    public int firstWithLength(int length) {
+        if (length < 0) {
+            return 0;
+        }
+        if (length > MAX_WORD_LENGTH) {
+            return size();
+        }
+        return bucketStart[bucket(length, 0)];
+    }
+
+    public int countWithLength(int minLength, int maxLength) {
+        return Math.max(0, firstWithLength(maxLength + 1) - firstWithLength(minLength));
+    }
+
+    /**
+     * Picks a random word with a length between minLength and maxLength inclusive.
+     * @return the index of the word, or -1 if there are no words that long.
+     */
+    public int randomIndex(Random random, int minLength, int maxLength) {
+        int count = countWithLength(minLength, maxLength);
+        return count == 0 ? -1 : firstWithLength(minLength) + random.nextInt(count);
+    }
+
+    /**
+     * Picks a random word with exactly the given length and number of distinct letters.
+     * @return the index of the word, or -1 if there is no such word.
+     */
+    public int randomIndex(Random random, int length, int minDistinct, int maxDistinct) {
+        if (length < 1 || length > MAX_WORD_LENGTH) {
+            return -1;
+        }
+        int start = bucketStart[bucket(length, Math.max(0, minDistinct))];
+        int end = bucketStart[bucket(length, Math.min(26, maxDistinct)) + 1];
+        return end <= start ? -1 : start + random.nextInt(end - start);
+    }
+
+    public int randomIndex(Random random) { return random.nextInt(size()); }
+
+    //For DictionarySnapshot, the buffers are duplicated so writing them out doesn't move this dictionary's positions
+    ByteBuffer letters() { return letters.duplicate(); }
+
+    IntBuffer offsets() { return offsets.duplicate(); }
+
+    IntBuffer letterMasks() { return letterMasks.duplicate(); }
+
+    int[] bucketStart() { return bucketStart; }
+
+    int[] wordsWithLetter() { return wordsWithLetter; }
+
+    @Override
+    public String randomWord(Random random) { return word(randomIndex(random)); }
+
+    @Override
+    public List<String> sample(int count, Predicate<String> filter, Random random) {
+        Reservoir reservoir = new Reservoir(count, random);
+        for (int i = 0; i < size(); i++) {
+            String word = word(i);
+            if (filter.test(word)) {
+                reservoir.offer(word);
+            }
+        }
+        return reservoir.getWords();
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compiles a word list into a .dict file that a Dictionary can be memory mapped from, so loading a dictionary takes
+ * the same few microseconds whether it has ten words or ten million, and processes mapping the same file share its
+ * pages. The words are normalized, deduplicated and sorted exactly like Dictionary.of does, once, ahead of time.
+ * <pre>
+ *   int    magic "HDCT"
+ *   short  format version
+ *   short  0
+ *   int    number of words
+ *   int    number of letter bytes, including 7 bytes of padding at the end
+ *   int    number of words with each letter, 26 of them
+ *   int    first word of each bucket, Dictionary.BUCKETS + 1 of them
+ *   int    offset of each word in the letters, number of words + 1 of them
+ *   int    letter mask of each word
+ *   byte   letters
+ * </pre>
+ * Everything is little-endian. There is no checksum, since checking one would mean reading the whole file, but a file
+ * that is the wrong size for its header, or whose buckets, offsets and letter masks don't add up, is rejected. That
+ * reads the offsets and letter masks, 8 bytes a word, but none of the letters.
+ * <p>
+ * Run with: java DictionarySnapshot [word list] [dict file], by default words.txt into words.dict. The game uses
+ * words.dict instead of words.txt when it is next to it and not older.
+ */
+public final class DictionarySnapshot {
+    static final int MAGIC = 0x48444354;
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 4 + 26 * 4 + (Dictionary.BUCKETS + 1) * 4;
+
+    private DictionarySnapshot() {}
+
+    /**
+     * Writes a dictionary to a .dict file, next to the target first and then moved over it.
+     * @param dictionary
+     * @param path
+     * @throws IOException
+     */
+    public static void write(Dictionary dictionary, Path path) throws IOException {
+        ByteBuffer letters = dictionary.letters();
+        letters.clear();
+        IntBuffer offsets = dictionary.offsets();
+        offsets.clear();
+        IntBuffer letterMasks = dictionary.letterMasks();
+        letterMasks.clear();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) 0);
+        header.putInt(dictionary.size());
+        header.putInt(letters.remaining());
+        for (int count : dictionary.wordsWithLetter()) {
+            header.putInt(count);
+        }
+        for (int start : dictionary.bucketStart()) {
+            header.putInt(start);
+        }
+        header.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            writeFully(channel, littleEndian(offsets));
+            writeFully(channel, littleEndian(letterMasks));
+            writeFully(channel, letters);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory maps a .dict file. Nothing is copied except the small bucket and letter count tables, the words stay in
+     * the file and are paged in as they're used.
+     * @param path
+     * @return
+     * @throws IOException if the file can't be read, isn't a .dict file, or is the wrong size or corrupt.
+     */
+    public static Dictionary map(Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a compiled dictionary");
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.getInt() != MAGIC) {
+            throw new IOException(path + " is not a compiled dictionary");
+        }
+        short version = file.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled dictionary version " + version);
+        }
+        file.getShort();
+        int words = file.getInt();
+        int letterBytes = file.getInt();
+        long expectedSize = HEADER_BYTES + (2L * words + 1) * 4 + letterBytes;
+        if (words < 0 || letterBytes < 7 || expectedSize != file.capacity()) {
+            throw new IOException(path + " is corrupt (wrong size)");
+        }
+        int[] wordsWithLetter = new int[26];
+        file.asIntBuffer().get(wordsWithLetter);
+        file.position(file.position() + 26 * 4);
+        int[] bucketStart = new int[Dictionary.BUCKETS + 1];
+        file.asIntBuffer().get(bucketStart);
+        file.position(file.position() + bucketStart.length * 4);
+        IntBuffer offsets = file.slice(file.position(), (words + 1) * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        file.position(file.position() + (words + 1) * 4);
+        IntBuffer letterMasks = file.slice(file.position(), words * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        file.position(file.position() + words * 4);
+        ByteBuffer letters = file.slice(file.position(), letterBytes);
+        if (bucketStart[0] != 0 || bucketStart[Dictionary.BUCKETS] != words || offsets.get(0) != 0
+                || offsets.get(words) != letterBytes - 7) {
+            throw new IOException(path + " is corrupt (tables don't match)");
+        }
+        for (int count : wordsWithLetter) {
+            if (count < 0 || count > words) {
+                throw new IOException(path + " is corrupt (letter counts)");
+            }
+        }
+        //Every word must have the length and letters its bucket says, which also keeps the offsets in order and inside
+        //the letters
+        for (int bucket = 0; bucket < Dictionary.BUCKETS; bucket++) {
+            if (bucketStart[bucket + 1] < bucketStart[bucket]) {
+                throw new IOException(path + " is corrupt (buckets out of order)");
+            }
+            int length = bucket / Dictionary.BUCKETS_PER_LENGTH;
+            int distinctLetters = bucket % Dictionary.BUCKETS_PER_LENGTH;
+            for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                if (offsets.get(i + 1) - offsets.get(i) != length
+                        || Integer.bitCount(letterMasks.get(i)) != distinctLetters) {
+                    throw new IOException(path + " is corrupt (word " + i + " doesn't fit its bucket)");
+                }
+            }
+        }
+        return new Dictionary(letters, offsets, letterMasks, bucketStart, wordsWithLetter);
+    }
+
+    private static ByteBuffer littleEndian(IntBuffer ints) {
+        ByteBuffer bytes = ByteBuffer.allocate(ints.remaining() * 4).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(ints);
+        return bytes;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path source = Paths.get(args.length > 0 ? args[0] : "words.txt");
+        Path target = Paths.get(args.length > 1 ? args[1] : "words.dict");
+        long start = System.nanoTime();
+        Dictionary dictionary;
+        try (InputStream in = Files.newInputStream(source)) {
+            dictionary = Dictionary.read(in);
+        }
+        write(dictionary, target);
+        System.out.printf("Compiled %,d words from %s into %s (%,d bytes) in %.2f s%n", dictionary.size(), source,
+                target, Files.size(target), (System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        Dictionary mapped = map(target);
+        System.out.printf("Mapping it back takes %.1f us%n", (System.nanoTime() - start) / 1e3);
+        if (mapped.size() != dictionary.size()) {
+            throw new IOException("Compiled dictionary doesn't match the word list");
+        }
+    }
+}
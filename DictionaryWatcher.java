@@ -0,0 +1,160 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches words.txt and swaps in a new default dictionary when it changes, without restarting and without stopping
+ * anyone playing. The new dictionary is built on a background thread while the old one carries on as the default,
+ * then made the default in one atomic step (see Dictionary.getDefault). Games started from then on get the new words.
+ * Games already being played keep the dictionary they started with: a normal game only holds its word, and an evil
+ * game holds its own Dictionary, which stays usable until the game is over and is collected after that.
+ * <p>
+ * If the old dictionary's DifficultyIndex was built, the new one's is built before the swap too, so the first game
+ * with a difficulty afterwards doesn't wait for it. If there is a words.dict next to words.txt, it's recompiled and
+ * the new dictionary is mapped from it, so only the build itself ever has two dictionaries' worth of words on the heap.
+ * A words.txt that can't be read, or has no words, is ignored and the old dictionary kept. Anything else going wrong
+ * with a reload is printed, and the watcher carries on.
+ */
+public final class DictionaryWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 500;  //Editors save a file in a few goes, wait for the last one
+    private static final Histogram reloadNanos = Metrics.histogram("dictionary.reload.nanos");
+
+    private final Path words;
+    private final WatchService watchService;
+    private final List<Consumer<Dictionary>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+
+    private DictionaryWatcher(Path words) throws IOException {
+        this.words = words;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        //Directories are watched rather than files, and saving often replaces the file rather than changing it
+        words.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = Thread.ofPlatform().name("hangman-dictionary-watcher").daemon().unstarted(this::watchLoop);
+        thread.setPriority(Thread.MIN_PRIORITY);    //Rebuilding gives way to the games
+        thread.start();
+    }
+
+    /**
+     * Loads the default dictionary if it isn't yet, and starts watching the words.txt it came from.
+     * @return the watcher, or null if words.txt isn't a file that can be watched.
+     * @throws IOException if there is no words.txt or it can't be read.
+     */
+    public static DictionaryWatcher watchDefault() throws IOException {
+        Dictionary.getDefault();
+        Path words = Dictionary.defaultWordsPath();
+        return words == null ? null : new DictionaryWatcher(words.toAbsolutePath());
+    }
+
+    /**
+     * Adds something to tell about every new default dictionary, on the watcher's thread, after it's the default.
+     * @param listener
+     */
+    public void onReload(Consumer<Dictionary> listener) {
+        listeners.add(listener);
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                if (changed(watchService.take())) {
+                    //Wait for the file to stop changing before reading it
+                    for (WatchKey key; (key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null; ) {
+                        changed(key);
+                    }
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        //A bad words.txt or a failing listener mustn't stop the next change being picked up
+                        System.err.println("Could not reload " + words + ": " + e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //Closed
+        }
+    }
+
+    /**
+     * @return true if any of the key's events were for words.txt.
+     */
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || words.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Builds a dictionary from words.txt and makes it the default.
+     * @return the new dictionary, or null if words.txt couldn't be used or the default was changed in the meantime.
+     */
+    Dictionary reload() {
+        HangmanEvents.DictionaryLoad event = new HangmanEvents.DictionaryLoad();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            Dictionary old = Dictionary.getDefault();
+            Dictionary rebuilt;
+            try (InputStream in = Files.newInputStream(words)) {
+                rebuilt = Dictionary.read(in);
+            }
+            if (rebuilt.size() == 0) {
+                return null;    //Most likely saved half way, there'll be another change
+            }
+            Path snapshot = words.resolveSibling("words.dict");
+            if (Files.exists(snapshot)) {
+                try {
+                    DictionarySnapshot.write(rebuilt, snapshot);
+                    rebuilt = DictionarySnapshot.map(snapshot); //Off the heap, the built one is garbage from here
+                } catch (IOException e) {
+                    //Can't be replaced while mapped on some systems, the built one does just as well
+                }
+            }
+            if (DifficultyIndex.isBuilt(old)) {
+                DifficultyIndex.of(rebuilt);
+            }
+            rebuilt.fingerprint();  //Games ending would otherwise work it out, on whichever thread that is
+            if (!Dictionary.replaceDefault(old, rebuilt)) {
+                return null;
+            }
+            reloadNanos.recordSince(start);
+            event.words = rebuilt.size();
+            event.commit();
+            for (Consumer<Dictionary> listener : listeners) {
+                listener.accept(rebuilt);
+            }
+            return rebuilt;
+        } catch (IOException e) {
+            return null;    //Keep playing with the old words
+        }
+    }
+
+    /**
+     * Stops watching. A rebuild in progress is finished first.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Scores how hard every word in a dictionary is, from 0 for the easiest to 1, and keeps the words sorted by score so a
+ * random word of a given difficulty can be picked without looking through them.
+ * <p>
+ * A word's score is mostly how badly a simulated player does on it: the wrong guesses made by a bot guessing letters
+ * from most to least common in English, out of the guesses allowed (a lost game counting as all of them). The Solver
+ * is no good for this, it knows the dictionary and wins almost every game. The rest of the score is what makes words
+ * hard in general: being short, having few distinct letters, and having letters that are rare in the dictionary.
+ */
+public final class DifficultyIndex {
+    /**
+     * Difficulty settings for players. Each one is a third of the words, ranked by score.
+     */
+    public enum Level {
+        ANY(0, 1), EASY(0, 1.0 / 3), MEDIUM(1.0 / 3, 2.0 / 3), HARD(2.0 / 3, 1);
+
+        private final double from;
+        private final double to;
+
+        Level(double from, double to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final double SIMULATED_WEIGHT = 0.6;
+    //Weak so old dictionaries can go, nothing in a slot refers back to its dictionary
+    private static final Map<Dictionary, Slot> indexes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * A dictionary's index once it's built, and the lock it's built under, so building one dictionary's index doesn't
+     * hold up getting another's.
+     */
+    private static final class Slot {
+        private volatile DifficultyIndex index;
+    }
+
+    private final float[] scores;       //By word
+    private final float[] sortedScores; //From easiest to hardest
+    private final int[] sortedWords;    //The word each of sortedScores belongs to
+
+    private DifficultyIndex(float[] scores, float[] sortedScores, int[] sortedWords) {
+        this.scores = scores;
+        this.sortedScores = sortedScores;
+        this.sortedWords = sortedWords;
+    }
+
+    /**
+     * Gets the index for a dictionary, building it the first time. Building plays one simulated game per word on all
+     * cores, well under a second for a million words.
+     * @param dictionary
+     * @return
+     */
+    public static DifficultyIndex of(Dictionary dictionary) {
+        Slot slot = indexes.computeIfAbsent(dictionary, key -> new Slot());
+        DifficultyIndex index = slot.index;
+        if (index != null) {
+            return index;
+        }
+        synchronized (slot) {
+            if (slot.index == null) {
+                slot.index = build(dictionary, Simulation.run(dictionary, dictionary.size(),
+                        GuessStrategy.named("frequency", dictionary), Runtime.getRuntime().availableProcessors()));
+            }
+            return slot.index;
+        }
+    }
+
+    /**
+     * @param dictionary
+     * @return true if the dictionary's index was built and is still cached, so of() would return it right away.
+     */
+    public static boolean isBuilt(Dictionary dictionary) {
+        Slot slot = indexes.get(dictionary);
+        return slot != null && slot.index != null;
+    }
+
+    /**
+     * Scores every word, in parallel, and sorts them by score.
+     * @param dictionary
+     * @param simulated  games played with the dictionary's words, words never played are scored without them.
+     * @return
+     */
+    public static DifficultyIndex build(Dictionary dictionary, Simulation.Result simulated) {
+        int size = dictionary.size();
+        float[] scores = new float[size];
+        IntStream.range(0, size).parallel().forEach(i -> scores[i] = score(dictionary, i, simulated));
+        long[] byScore = new long[size];    //Score in the high half, so sorting these sorts the words by score
+        for (int i = 0; i < size; i++) {
+            byScore[i] = (long) Float.floatToIntBits(scores[i]) << 32 | i;    //Scores are positive, so bits sort as floats
+        }
+        Arrays.parallelSort(byScore);
+        float[] sortedScores = new float[size];
+        int[] sortedWords = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedWords[i] = (int) byScore[i];
+            sortedScores[i] = scores[sortedWords[i]];
+        }
+        return new DifficultyIndex(scores, sortedScores, sortedWords);
+    }
+
+    private static float score(Dictionary dictionary, int index, Simulation.Result simulated) {
+        int distinct = dictionary.distinctLetters(index);
+        double shortness = 1 - Math.min(dictionary.length(index), 16) / 16.0;
+        double repetition = 1 - Math.min(distinct, 12) / 12.0;
+        double rarity = 0;
+        for (int left = dictionary.letterMask(index); left != 0; left &= left - 1) {
+            char letter = (char) ('A' + Integer.numberOfTrailingZeros(left));
+            rarity += 1 - (double) dictionary.wordsWithLetter(letter) / dictionary.size();
+        }
+        double general = (shortness + repetition + rarity / distinct) / 3;
+        double wrongGuesses = simulated.getAverageWrongGuesses(index);
+        if (Double.isNaN(wrongGuesses)) {
+            return (float) general;
+        }
+        double played = Math.min(1, wrongGuesses / GameSession.DEFAULT_GUESSES_ALLOWED);
+        return (float) (SIMULATED_WEIGHT * played + (1 - SIMULATED_WEIGHT) * general);
+    }
+
+    /**
+     * @param wordIndex
+     * @return the word's score, 0 being the easiest.
+     */
+    public float getScore(int wordIndex) { return scores[wordIndex]; }
+
+    /**
+     * Picks a random word with a score between minScore and maxScore inclusive.
+     * @return the index of the word, or -1 if no word's score is in range.
+     */
+    public int randomIndex(Random random, double minScore, double maxScore) {
+        int from = firstScoreAtLeast(minScore);
+        int to = firstScoreAbove(maxScore);
+        return to <= from ? -1 : sortedWords[from + random.nextInt(to - from)];
+    }
+
+    /**
+     * Picks a random word from the level's share of the words, ranked by score.
+     * @return the index of the word, or -1 if the dictionary has too few words for the level to have any.
+     */
+    public int randomIndex(Random random, Level level) {
+        int size = size(level);
+        return size == 0 ? -1 : wordAt(level, random.nextInt(size));
+    }
+
+    /**
+     * @param level
+     * @return how many words the level has.
+     */
+    public int size(Level level) {
+        return (int) (level.to * sortedWords.length) - (int) (level.from * sortedWords.length);
+    }
+
+    /**
+     * Gets one of the level's words by its rank, so a WordScheduler can go through the level's words.
+     * @param level
+     * @param rank   0 to size(level) - 1, from the easiest of the level's words to the hardest.
+     * @return the index of the word.
+     */
+    public int wordAt(Level level, int rank) {
+        return sortedWords[(int) (level.from * sortedWords.length) + Objects.checkIndex(rank, size(level))];
+    }
+
+    private int firstScoreAtLeast(double score) {
+        int low = 0;
+        int high = sortedScores.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedScores[middle] < score) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstScoreAbove(double score) {
+        int low = 0;
+        int high = sortedScores.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedScores[middle] <= score) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.stream.IntStream;
+
+/**
+ * A game of hangman that cheats: it doesn't settle on a word until it has to.
+ * Every time a new letter is guessed, the words still possible are split into families by where that letter would
+ * appear (nowhere being a family too), and the game keeps the biggest family. The player sees a normal game, the word
+ * shown at the end is one of the words still possible.
+ * <p>
+ * Families are keyed by the letter's positions as a long, counted in a primitive hash table, and the candidates are
+ * filtered in place. Until the first guess every word of the length is a candidate, so none are stored. After a guess
+ * the arrays are cut down to the words still possible once they're half as many or fewer. A game that has narrowed
+ * down to a few words doesn't keep an array the size of the whole word length.
+ */
+public class EvilGameSession extends GameSession {
+    private static final int PARALLEL_THRESHOLD = 100_000;
+    private final Dictionary dictionary;
+    private final int firstCandidate;
+    private int[] candidates;   //Null until the first guess, until then the candidates are the words from firstCandidate
+    private long[] patterns;
+    private int candidateCount;
+    private int wordIndex;
+    private final PatternCounts families = new PatternCounts();
+
+    /**
+     * Starts a game with every dictionary word of the given length still possible.
+     * @param dictionary
+     * @param wordLength
+     * @param guessesAllowed
+     */
+    public EvilGameSession(Dictionary dictionary, int wordLength, int guessesAllowed) {
+        super(firstWord(dictionary, wordLength), guessesAllowed);
+        this.dictionary = dictionary;
+        this.candidateCount = dictionary.countWithLength(wordLength, wordLength);
+        this.firstCandidate = dictionary.firstWithLength(wordLength);
+        this.wordIndex = firstCandidate;
+    }
+
+    private static String firstWord(Dictionary dictionary, int wordLength) {
+        if (dictionary.countWithLength(wordLength, wordLength) == 0) {
+            throw new IllegalArgumentException("No words with " + wordLength + " letters");
+        }
+        return dictionary.word(dictionary.firstWithLength(wordLength));
+    }
+
+    /**
+     * Keeps the biggest family of words for the letter and switches the word to one from that family.
+     * @param letterIndex the letter guessed, 0 being A.
+     */
+    @Override
+    protected void beforeGuess(int letterIndex) {
+        char letter = (char) ('A' + letterIndex);
+        if (patterns == null) {
+            patterns = new long[candidateCount];
+        }
+        if (candidateCount >= PARALLEL_THRESHOLD) { //Finding the patterns is most of the work, so split it across cores
+            IntStream.range(0, candidateCount).parallel()
+                    .forEach(i -> patterns[i] = dictionary.positions(candidate(i), letter));
+        }
+        else {
+            for (int i = 0; i < candidateCount; i++) {
+                patterns[i] = dictionary.positions(candidate(i), letter);
+            }
+        }
+        families.clear();
+        int missing = 0;    //Words without the letter are usually most of them, so they are counted without hashing
+        for (int i = 0; i < candidateCount; i++) {
+            long pattern = patterns[i];
+            if (pattern == 0) {
+                missing++;
+            }
+            else {
+                families.increment(pattern);
+            }
+        }
+        long kept = families.mostCommon();
+        if (missing >= families.get(kept)) {
+            kept = 0;
+        }
+        int count = kept == 0 ? missing : families.get(kept);
+        int[] keptCandidates = candidates;
+        if (candidates == null || count <= candidates.length / 2) {
+            keptCandidates = new int[count];
+        }
+        int next = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if (patterns[i] == kept) {
+                keptCandidates[next++] = candidate(i);
+            }
+        }
+        if (keptCandidates != candidates) {
+            candidates = keptCandidates;
+            patterns = new long[count];
+        }
+        candidateCount = count;
+        if (wordIndex != candidates[0]) {
+            wordIndex = candidates[0];
+            changeWord(dictionary.word(wordIndex));
+        }
+    }
+
+    private int candidate(int i) {
+        return candidates == null ? firstCandidate + i : candidates[i];
+    }
+
+    /**
+     * Gets how many words are still possible.
+     * @return
+     */
+    public int getCandidateCount() { return candidateCount; }
+}
@@ -0,0 +1,66 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Brings game events to the FX thread in batches, at most one batch a pulse. Events are queued as they come in, and
+ * the first one of a batch starts an AnimationTimer, which hands over everything queued by the next pulse and stops.
+ * However fast events come in, the window only updates once a frame, before it's laid out and drawn.
+ */
+public class FxEventBatcher implements Flow.Subscriber<GameEvents.Event> {
+    private static final Histogram batchDelayNanos = Metrics.histogram("ui.events.delay.nanos");
+    private final Queue<GameEvents.Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Consumer<List<GameEvents.Event>> onBatch;
+    private final AnimationTimer timer;
+    private volatile long firstQueuedNanos;
+
+    /**
+     * @param onBatch called on the FX thread with the events since the last batch, oldest first.
+     */
+    public FxEventBatcher(Consumer<List<GameEvents.Event>> onBatch) {
+        this.onBatch = onBatch;
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                scheduled.set(false);   //Events from now on start another batch
+                batchDelayNanos.recordSince(firstQueuedNanos);
+                List<GameEvents.Event> batch = new ArrayList<>();
+                for (GameEvents.Event event; (event = queue.poll()) != null; ) {
+                    batch.add(event);
+                }
+                if (!batch.isEmpty()) {
+                    onBatch.accept(batch);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);   //Only queues, so it never falls behind
+    }
+
+    @Override
+    public void onNext(GameEvents.Event event) {
+        queue.add(event);
+        if (scheduled.compareAndSet(false, true)) {
+            firstQueuedNanos = System.nanoTime();
+            Platform.runLater(timer::start);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {}
+}
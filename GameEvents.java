@@ -0,0 +1,158 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Publishes what happens in games as it happens, so the window, the history, metrics and bots can each follow along
+ * without the game knowing about any of them. This class has no JavaFX dependencies, FxEventBatcher brings events to
+ * the FX thread.
+ * <p>
+ * Events go through a SubmissionPublisher: each subscriber gets them in order, on a thread of the common pool, with a
+ * buffer of Flow.defaultBufferSize() events it asks for as it goes. A subscriber that falls that far behind misses
+ * events rather than holding up guessing, they're counted in the events.dropped metric.
+ * <p>
+ * Something that can't miss an event and is quick about it, like the spectators' frames, listens instead: a listener
+ * is called on the thread that publishes, before subscribers get the event, and is never skipped.
+ */
+public final class GameEvents implements AutoCloseable {
+    private static final LongAdder DROPPED = Metrics.counter("events.dropped");
+
+    /**
+     * Something that happened in a game.
+     */
+    public sealed interface Event permits GuessMade, LetterRevealed, LifeLost, GameWon, GameLost {
+        /**
+         * @return the id the game is known by, 0 if it has none.
+         */
+        long game();
+
+        GameSession session();
+    }
+
+    /**
+     * A letter was guessed for the first time, always followed by a LetterRevealed or a LifeLost.
+     */
+    public record GuessMade(long game, GameSession session, char letter, boolean correct) implements Event {}
+
+    /**
+     * A guess showed the letter at positions, a mask with bit 0 being the first letter. guesses is how many letters
+     * had been guessed in the game after it, which orders the game's events.
+     */
+    public record LetterRevealed(long game, GameSession session, char letter, long positions, int guesses)
+            implements Event {}
+
+    /**
+     * A guess of the letter was wrong, leaving remainingGuesses. guesses is like LetterRevealed's.
+     */
+    public record LifeLost(long game, GameSession session, char letter, int remainingGuesses, int guesses)
+            implements Event {}
+
+    /**
+     * The game was won. Its word is at wordIndex in the dictionary with the fingerprint dictionary, worked out by
+     * whoever played the game, on their thread.
+     */
+    public record GameWon(long game, GameSession session, long dictionary, int wordIndex) implements Event {}
+
+    /**
+     * The game was lost, with the word at wordIndex like GameWon.
+     */
+    public record GameLost(long game, GameSession session, long dictionary, int wordIndex) implements Event {}
+
+    private final SubmissionPublisher<Event> publisher = new SubmissionPublisher<>();
+    private volatile boolean subscribed;    //The publisher takes a lock to offer, even with nobody to offer to
+    private final List<Consumer<? super Event>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Publishes the events of a guess that was just made, in a game with no word index.
+     * @param game      the id of the game, 0 if it has none.
+     * @param session
+     * @param letter
+     * @param positions what GameSession.guess returned.
+     */
+    public void guessed(long game, GameSession session, char letter, long positions) {
+        guessed(game, session, letter, positions, 0, -1);
+    }
+
+    /**
+     * Publishes the events of a guess that was just made.
+     * @param game       the id of the game, 0 if it has none.
+     * @param session
+     * @param letter
+     * @param positions  what GameSession.guess returned.
+     * @param dictionary the fingerprint of the dictionary wordIndex is an index into, if the guess ended the game.
+     * @param wordIndex  the index of the game's word, -1 if it isn't in a dictionary.
+     */
+    public void guessed(long game, GameSession session, char letter, long positions, long dictionary,
+                        int wordIndex) {
+        publish(new GuessMade(game, session, letter, positions != 0));
+        if (positions != 0) {
+            publish(new LetterRevealed(game, session, letter, positions, session.getGuessCount()));
+        }
+        else {
+            publish(new LifeLost(game, session, letter, session.getRemainingGuesses(), session.getGuessCount()));
+        }
+        if (session.isWon()) {
+            publish(new GameWon(game, session, dictionary, wordIndex));
+        }
+        else if (session.isLost()) {
+            publish(new GameLost(game, session, dictionary, wordIndex));
+        }
+    }
+
+    /**
+     * Hands an event to every subscriber, never waiting for one.
+     * @param event
+     */
+    public void publish(Event event) {
+        for (Consumer<? super Event> listener : listeners) {
+            listener.accept(event);
+        }
+        if (!subscribed) {
+            return;
+        }
+        publisher.offer(event, (subscriber, dropped) -> {
+            DROPPED.increment();
+            return false;
+        });
+    }
+
+    public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+        subscribed = true;
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Subscribes something that handles every event as it comes, one at a time.
+     * @param onEvent
+     * @return completes once onEvent has had every event published before close().
+     */
+    public CompletableFuture<Void> subscribe(Consumer<? super Event> onEvent) {
+        subscribed = true;
+        return publisher.consume(onEvent::accept);
+    }
+
+    /**
+     * Calls a listener with every event, on the thread publishing it, which for a guess is holding the game. It must
+     * be quick and never wait, it holds up the guess, but it never misses an event.
+     * @param listener
+     */
+    public void listen(Consumer<? super Event> listener) {
+        listeners.add(listener);
+    }
+
+    public void stopListening(Consumer<? super Event> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops publishing, subscribers get onComplete once they've had the events before it.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
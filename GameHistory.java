@@ -0,0 +1,729 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps every finished game on disk, to work out which words are hard and how people play. A game is its word, as an
+ * index into the dictionary it was played with, how it ended, and its guesses in order at 5 bits each, about 22 bytes
+ * in all.
+ * <p>
+ * Games are stored in columns: a segment file has the word of every game one after the other, then the length of
+ * every word, and so on, so a scan only touches the columns it needs. New games go to a tail in memory, and flush()
+ * appends the ones since the last flush to the tail's log and fsyncs it, so a flush only costs the games it writes.
+ * Once the tail has SEGMENT_GAMES games it is sealed: written out as its segment file, which is never written again,
+ * its log deleted and a new tail started. Games recorded since the last flush are lost if the process dies, and a
+ * flush cut short by the crash is dropped when the history is opened again.
+ * <p>
+ * Word indexes only mean something with the dictionary the games were played with, so each segment holds games from
+ * one dictionary and has its fingerprint (see Dictionary.fingerprint). A game from another dictionary seals the tail,
+ * and scans only count games per word in segments from the dictionary asked about.
+ * <p>
+ * Scans memory map every segment, read the tail's log, and go through blocks of BLOCK_GAMES games on all cores, tens
+ * of millions of games in a second or two. Each segment file, games-NNNNNN.col, is:
+ * <pre>
+ *   int    magic "HGHS"
+ *   short  format version
+ *   short  0
+ *   int    number of games
+ *   int    number of longs of guesses
+ *   int    highest word index + 1
+ *   long   fingerprint of the dictionary the word indexes are into, 0 if there are none (not in version 1)
+ *   int    word index of each game, -1 for a word that isn't in the dictionary
+ *   byte   length of each game's word
+ *   byte   outcome of each game, WON and EVIL bits
+ *   byte   number of guesses of each game
+ *   byte   number of wrong guesses of each game
+ *   int    bit of each game's first guess in the guesses
+ *   long   guesses, 5 bits each (0 being A) from the lowest bit up, a guess can carry on into the next long
+ * </pre>
+ * The tail's log, games-NNNNNN.log with the number it will be sealed as, is frames like the GuessJournal's (see
+ * LogFrames), one per flush:
+ * <pre>
+ *   long   fingerprint of the tail's dictionary, 0 if none of its games has a word index yet
+ *   per game:
+ *     int    word index
+ *     byte   length of the word
+ *     byte   outcome
+ *     byte   number of guesses
+ *     byte   number of wrong guesses
+ *     byte   each guess, 0 being A
+ * </pre>
+ * Segments and the records in logs are little-endian. Segments of version 1 have no fingerprint, so their games aren't
+ * counted per word.
+ * <p>
+ * Run with: java GameHistory [directory] [games to simulate], by default the game's history in ~/.hangman/history.
+ * Simulated games are recorded first, played by a bot guessing letters from most to least common.
+ */
+public final class GameHistory implements Closeable {
+    public static final int WON = 1;
+    public static final int EVIL = 2;
+    static final int MAGIC = 0x48474853;
+    static final short VERSION = 2;
+    private static final int VERSION_1_HEADER_BYTES = 4 + 2 + 2 + 4 + 4 + 4;
+    private static final int HEADER_BYTES = VERSION_1_HEADER_BYTES + 8;
+    private static final int SEGMENT_GAMES = 1 << 20;
+    private static final int BLOCK_GAMES = 1 << 16;
+    private static final int GUESS_BITS = 5;
+    private static final int GUESS_MASK = (1 << GUESS_BITS) - 1;
+
+    private final Path directory;
+    private int tailSegment;    //Number the tail will be sealed as, and of its log
+    private FileChannel log;    //The tail's log, opened by the first flush
+    private int games;          //In the tail
+    private int flushedGames;   //Games in the tail that are in its log
+    private int[] words = new int[256];
+    private byte[] lengths = new byte[256];
+    private byte[] outcomes = new byte[256];
+    private byte[] guessCounts = new byte[256];
+    private byte[] wrongGuesses = new byte[256];
+    private int[] guessStarts = new int[256];
+    private long[] guesses = new long[256];
+    private int guessBits;
+    private int wordSlots;
+    private long dictionary;    //Fingerprint of the tail's dictionary, 0 until a game in it has a word index
+    private boolean closed;
+
+    private GameHistory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the history in a directory, making the directory if it isn't there. The tail's log is read back into
+     * memory so new games carry on after it, and whatever is after its last good frame is cut off.
+     * @param directory
+     * @return
+     * @throws IOException if the directory can't be made or the tail's log can't be read.
+     */
+    public static GameHistory open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        GameHistory history = new GameHistory(directory);
+        List<Path> segments = segmentFiles(directory, "col");
+        history.tailSegment = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        List<Path> logs = segmentFiles(directory, "log");
+        for (Path path : logs) {
+            if (segmentNumber(path) < history.tailSegment) {
+                Files.delete(path); //Sealed, we stopped before its log was deleted
+            }
+        }
+        if (!logs.isEmpty() && segmentNumber(logs.get(logs.size() - 1)) >= history.tailSegment) {
+            Path tail = logs.get(logs.size() - 1);
+            history.tailSegment = segmentNumber(tail);
+            history.log = FileChannel.open(tail, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            history.log.truncate(LogFrames.read(history.log, history::replay));
+            history.log.position(history.log.size());
+            history.flushedGames = history.games;
+        }
+        return history;
+    }
+
+    /**
+     * Adds the games of a frame of the tail's log to the tail.
+     */
+    private void replay(ByteBuffer records) throws IOException {
+        try {
+            records.order(ByteOrder.LITTLE_ENDIAN);
+            long dictionary = records.getLong();
+            if (dictionary != 0) {
+                this.dictionary = dictionary;
+            }
+            while (records.hasRemaining()) {
+                if (games == SEGMENT_GAMES) {
+                    throw new IOException("Game history log has too many games");
+                }
+                int word = records.getInt();
+                int length = records.get();
+                int outcome = records.get();
+                int guessCount = records.get();
+                addGame(word, length, outcome, guessCount, records.get());
+                for (int i = 0; i < guessCount; i++) {
+                    addGuess(records.get());
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Game history log is corrupt", e);
+        }
+    }
+
+    /**
+     * Records a finished game. Only memory is touched, unless the tail is full or the game is from another dictionary
+     * than the tail's games, then the tail is sealed first.
+     * @param dictionary the fingerprint of the dictionary wordIndex is an index into.
+     * @param wordIndex  the index of the game's word in the dictionary, -1 if it isn't in it.
+     * @param session    a game that is over.
+     * @throws IOException if the history is closed, or the tail couldn't be sealed.
+     */
+    public synchronized void record(long dictionary, int wordIndex, GameSession session) throws IOException {
+        if (closed) {
+            throw new IOException("The game history is closed");
+        }
+        if (!session.isOver()) {
+            throw new IllegalArgumentException("The game isn't over");
+        }
+        if (games == SEGMENT_GAMES) {
+            seal();
+        }
+        if (wordIndex >= 0 && dictionary != this.dictionary) {
+            if (this.dictionary != 0) {
+                seal();
+            }
+            this.dictionary = dictionary;
+        }
+        int guessCount = session.getGuessCount();
+        addGame(wordIndex, session.getWord().length(),
+                (session.isWon() ? WON : 0) | (session instanceof EvilGameSession ? EVIL : 0), guessCount,
+                session.getWrongGuesses());
+        for (int i = 0; i < guessCount; i++) {
+            addGuess(session.getGuess(i) - 'A');
+        }
+    }
+
+    /**
+     * Adds a game to the tail, its guesses are added after it with addGuess.
+     */
+    private void addGame(int wordIndex, int length, int outcome, int guessCount, int wrongGuesses) {
+        grow(games + 1, ((guessBits + guessCount * GUESS_BITS) >>> 6) + 2);
+        words[games] = wordIndex;
+        lengths[games] = (byte) length;
+        outcomes[games] = (byte) outcome;
+        guessCounts[games] = (byte) guessCount;
+        this.wrongGuesses[games] = (byte) wrongGuesses;
+        guessStarts[games] = guessBits;
+        games++;
+        wordSlots = Math.max(wordSlots, wordIndex + 1);
+    }
+
+    private void addGuess(long code) {
+        int shift = guessBits & 63;
+        guesses[guessBits >>> 6] |= code << shift;
+        if (shift > 64 - GUESS_BITS) {  //Carries on into the next long
+            guesses[(guessBits >>> 6) + 1] |= code >>> (64 - shift);
+        }
+        guessBits += GUESS_BITS;
+    }
+
+    /**
+     * @return the guess at a bit of the tail's guesses, 0 being A.
+     */
+    private int guessAt(int bit) {
+        int shift = bit & 63;
+        long value = guesses[bit >>> 6] >>> shift;
+        if (shift > 64 - GUESS_BITS) {
+            value |= guesses[(bit >>> 6) + 1] << (64 - shift);
+        }
+        return (int) (value & GUESS_MASK);
+    }
+
+    /**
+     * Writes the tail out as its segment file, deletes its log and starts the next segment. If we stop before the log
+     * is deleted, open() deletes it.
+     */
+    private void seal() throws IOException {
+        ByteBuffer segment = encodeTail();
+        Path path = segmentPath(directory, tailSegment, "col");
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (segment.hasRemaining()) {
+                channel.write(segment);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        Files.deleteIfExists(segmentPath(directory, tailSegment, "log"));
+        tailSegment++;
+        games = 0;
+        flushedGames = 0;
+        guessBits = 0;
+        wordSlots = 0;
+        dictionary = 0;
+        Arrays.fill(guesses, 0);
+    }
+
+    private void grow(int gameCapacity, int guessCapacity) {
+        if (gameCapacity > words.length) {
+            int capacity = Math.min(SEGMENT_GAMES, Math.max(gameCapacity, words.length * 2));
+            words = Arrays.copyOf(words, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            outcomes = Arrays.copyOf(outcomes, capacity);
+            guessCounts = Arrays.copyOf(guessCounts, capacity);
+            wrongGuesses = Arrays.copyOf(wrongGuesses, capacity);
+            guessStarts = Arrays.copyOf(guessStarts, capacity);
+        }
+        if (guessCapacity > guesses.length) {
+            guesses = Arrays.copyOf(guesses, Math.max(guessCapacity, guesses.length * 2));
+        }
+    }
+
+    /**
+     * Appends the games recorded since the last flush to the tail's log, as one frame, and fsyncs it.
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (games == flushedGames) {
+            return;
+        }
+        int bytes = 8;
+        for (int game = flushedGames; game < games; game++) {
+            bytes += 4 + 4 + guessCounts[game];
+        }
+        ByteBuffer records = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        records.putLong(dictionary);
+        for (int game = flushedGames; game < games; game++) {
+            records.putInt(words[game]).put(lengths[game]).put(outcomes[game]).put(guessCounts[game])
+                    .put(wrongGuesses[game]);
+            for (int i = 0; i < guessCounts[game]; i++) {
+                records.put((byte) guessAt(guessStarts[game] + i * GUESS_BITS));
+            }
+        }
+        records.flip();
+        if (log == null) {
+            log = FileChannel.open(segmentPath(directory, tailSegment, "log"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            log.position(log.size());
+        }
+        long end = log.position();
+        try {
+            LogFrames.write(log, records);
+            log.force(false);
+        } catch (IOException e) {
+            try {
+                log.truncate(end);  //So the next flush isn't appended after half a frame
+            } catch (IOException truncate) {
+                e.addSuppressed(truncate);
+            }
+            throw e;
+        }
+        flushedGames = games;
+    }
+
+    /**
+     * @return the tail as a segment file.
+     */
+    private ByteBuffer encodeTail() {
+        int guessLongs = (guessBits + 63) >>> 6;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + games * 12 + guessLongs * 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(games);
+        buffer.putInt(guessLongs);
+        buffer.putInt(wordSlots);
+        buffer.putLong(dictionary);
+        buffer.asIntBuffer().put(words, 0, games);
+        buffer.position(buffer.position() + games * 4);
+        buffer.put(lengths, 0, games);
+        buffer.put(outcomes, 0, games);
+        buffer.put(guessCounts, 0, games);
+        buffer.put(wrongGuesses, 0, games);
+        buffer.asIntBuffer().put(guessStarts, 0, games);
+        buffer.position(buffer.position() + games * 4);
+        buffer.asLongBuffer().put(guesses, 0, guessLongs);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Flushes and closes the history, recording after this throws. The tail isn't sealed, the next open carries on
+     * with its log.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            try {
+                flush();
+            } finally {
+                closed = true;
+                if (log != null) {
+                    log.close();
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() { return directory; }
+
+    /**
+     * Flushes, then scans every game recorded.
+     * @param dictionary the fingerprint of the dictionary to count games per word for.
+     * @return
+     * @throws IOException if a segment can't be read.
+     */
+    public Summary scan(long dictionary) throws IOException {
+        flush();
+        return scan(directory, dictionary);
+    }
+
+    /**
+     * Scans every game in a history's directory, on all cores.
+     * @param directory
+     * @param dictionary the fingerprint of the dictionary to count games per word for, games from other dictionaries
+     *                   are only counted in the totals.
+     * @return
+     * @throws IOException if a segment can't be read.
+     */
+    public static Summary scan(Path directory, long dictionary) throws IOException {
+        long start = System.nanoTime();
+        List<Segment> segments = new ArrayList<>();
+        List<long[]> blocks = new ArrayList<>();  //Segment and first game of each block
+        int wordSlots = 0;
+        for (Segment segment : readSegments(directory)) {
+            for (int first = 0; first < segment.games; first += BLOCK_GAMES) {
+                blocks.add(new long[] {segments.size(), first});
+            }
+            segments.add(segment);
+            if (segment.dictionary == dictionary) {
+                wordSlots = Math.max(wordSlots, segment.wordSlots);
+            }
+        }
+        Summary summary = new Summary(dictionary, wordSlots);
+        IntStream.range(0, blocks.size()).parallel().forEach(i -> {
+            Segment segment = segments.get((int) blocks.get(i)[0]);
+            int first = (int) blocks.get(i)[1];
+            summary.add(segment, first, Math.min(segment.games, first + BLOCK_GAMES));
+        });
+        summary.nanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Maps every segment file and reads every log that hasn't been sealed. Segment files are listed first, so a log
+     * sealed while we look is either read or gone, then its segment file is mapped instead.
+     */
+    private static List<Segment> readSegments(Path directory) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        Set<Integer> sealed = new HashSet<>();
+        for (Path path : segmentFiles(directory, "col")) {
+            segments.add(Segment.map(path));
+            sealed.add(segmentNumber(path));
+        }
+        for (Path path : segmentFiles(directory, "log")) {
+            if (sealed.contains(segmentNumber(path))) {
+                continue;
+            }
+            GameHistory tail = new GameHistory(directory);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                LogFrames.read(channel, tail::replay);
+            } catch (NoSuchFileException e) {
+                segments.add(Segment.map(segmentPath(directory, segmentNumber(path), "col")));
+                continue;
+            }
+            segments.add(Segment.parse(path, tail.encodeTail()));
+        }
+        return segments;
+    }
+
+    private static List<Path> segmentFiles(Path directory, String extension) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "games-*." + extension)) {
+                files.forEach(segments::add);
+            }
+        }
+        segments.sort(null);    //Zero padded numbers, so names sort by number
+        return segments;
+    }
+
+    private static Path segmentPath(Path directory, int number, String extension) {
+        return directory.resolve(String.format("games-%06d.%s", number, extension));
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring("games-".length(), name.lastIndexOf('.')));
+    }
+
+    /**
+     * A segment file, memory mapped or read from a log, with a view of each column.
+     */
+    private static class Segment {
+        private final int games;
+        private final int wordSlots;
+        private final long dictionary;
+        private final IntBuffer words;
+        private final ByteBuffer lengths;
+        private final ByteBuffer outcomes;
+        private final ByteBuffer guessCounts;
+        private final ByteBuffer wrongGuesses;
+        private final IntBuffer guessStarts;
+        private final LongBuffer guesses;
+
+        private Segment(ByteBuffer file, short version, int games, int guessLongs, int wordSlots, long dictionary) {
+            this.games = games;
+            this.wordSlots = wordSlots;
+            this.dictionary = dictionary;
+            int position = headerBytes(version);
+            words = file.slice(position, games * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            position += games * 4;
+            lengths = file.slice(position, games);
+            position += games;
+            outcomes = file.slice(position, games);
+            position += games;
+            guessCounts = file.slice(position, games);
+            position += games;
+            wrongGuesses = file.slice(position, games);
+            position += games;
+            guessStarts = file.slice(position, games * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            position += games * 4;
+            guesses = file.slice(position, guessLongs * 8).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+
+        static Segment map(Path path) throws IOException {
+            MappedByteBuffer file;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(path + " is not a game history segment");
+                }
+                file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            return parse(path, file);
+        }
+
+        /**
+         * @param path where the segment came from, for errors.
+         */
+        static Segment parse(Path path, ByteBuffer file) throws IOException {
+            if (file.capacity() < VERSION_1_HEADER_BYTES) {
+                throw new IOException(path + " is not a game history segment");
+            }
+            file.order(ByteOrder.LITTLE_ENDIAN);
+            if (file.getInt() != MAGIC) {
+                throw new IOException(path + " is not a game history segment");
+            }
+            short version = file.getShort();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported game history version " + version);
+            }
+            file.getShort();
+            int games = file.getInt();
+            int guessLongs = file.getInt();
+            int wordSlots = file.getInt();
+            if (games < 0 || games > SEGMENT_GAMES || guessLongs < 0
+                    || headerBytes(version) + games * 12L + guessLongs * 8L != file.capacity()) {
+                throw new IOException(path + " is corrupt (wrong size)");
+            }
+            long dictionary = version == 1 ? 0 : file.getLong();
+            return new Segment(file, version, games, guessLongs, wordSlots, dictionary);
+        }
+
+        private static int headerBytes(short version) {
+            return version == 1 ? VERSION_1_HEADER_BYTES : HEADER_BYTES;
+        }
+
+        /**
+         * @return the guess at a bit of the guesses, 0 being A.
+         */
+        int guessAt(int bit) {
+            int shift = bit & 63;
+            long value = guesses.get(bit >>> 6) >>> shift;
+            if (shift > 64 - GUESS_BITS) {
+                value |= guesses.get((bit >>> 6) + 1) << (64 - shift);
+            }
+            return (int) (value & GUESS_MASK);
+        }
+    }
+
+    /**
+     * What a scan found. Games per word are counted straight into shared counters, the rest is counted per block and
+     * added once at the end of it, like Simulation.Result. Games per word are only for the dictionary asked about.
+     */
+    public static class Summary {
+        private final long dictionary;
+        private final AtomicIntegerArray gamesByWord;
+        private final AtomicIntegerArray winsByWord;
+        private final long[] firstGuesses = new long[26];
+        private final long[] gamesByLength = new long[Dictionary.MAX_WORD_LENGTH + 1];
+        private final long[] guessesByLength = new long[Dictionary.MAX_WORD_LENGTH + 1];
+        private final long[] wrongGuessesByLength = new long[Dictionary.MAX_WORD_LENGTH + 1];
+        private long games;
+        private long wins;
+        private long nanos;
+
+        Summary(long dictionary, int wordSlots) {
+            this.dictionary = dictionary;
+            gamesByWord = new AtomicIntegerArray(wordSlots);
+            winsByWord = new AtomicIntegerArray(wordSlots);
+        }
+
+        private void add(Segment segment, int first, int last) {
+            long[] firstGuesses = new long[26];
+            long[] games = new long[Dictionary.MAX_WORD_LENGTH + 1];
+            long[] guesses = new long[Dictionary.MAX_WORD_LENGTH + 1];
+            long[] wrongGuesses = new long[Dictionary.MAX_WORD_LENGTH + 1];
+            long wins = 0;
+            boolean byWord = segment.dictionary == dictionary;
+            for (int game = first; game < last; game++) {
+                int word = segment.words.get(game);
+                boolean won = (segment.outcomes.get(game) & WON) != 0;
+                if (word >= 0 && byWord) {
+                    gamesByWord.incrementAndGet(word);
+                    if (won) {
+                        winsByWord.incrementAndGet(word);
+                    }
+                }
+                if (won) {
+                    wins++;
+                }
+                int length = segment.lengths.get(game);
+                int guessCount = segment.guessCounts.get(game);
+                games[length]++;
+                guesses[length] += guessCount;
+                wrongGuesses[length] += segment.wrongGuesses.get(game);
+                if (guessCount > 0) {
+                    firstGuesses[segment.guessAt(segment.guessStarts.get(game))]++;
+                }
+            }
+            synchronized (this) {
+                for (int i = 0; i < games.length; i++) {
+                    gamesByLength[i] += games[i];
+                    guessesByLength[i] += guesses[i];
+                    wrongGuessesByLength[i] += wrongGuesses[i];
+                }
+                for (int i = 0; i < 26; i++) {
+                    this.firstGuesses[i] += firstGuesses[i];
+                }
+                this.games += last - first;
+                this.wins += wins;
+            }
+        }
+
+        public synchronized long getGames() { return games; }
+
+        public synchronized long getWins() { return wins; }
+
+        /**
+         * @return how long the scan took.
+         */
+        public long getNanos() { return nanos; }
+
+        /**
+         * @return the fingerprint of the dictionary games per word were counted for.
+         */
+        public long getDictionary() { return dictionary; }
+
+        public int getGamesForWord(int wordIndex) {
+            return wordIndex < gamesByWord.length() ? gamesByWord.get(wordIndex) : 0;
+        }
+
+        /**
+         * @return the fraction of games won with the word, or NaN if it was never played.
+         */
+        public double getWinRate(int wordIndex) {
+            return wordIndex < winsByWord.length()
+                    ? (double) winsByWord.get(wordIndex) / gamesByWord.get(wordIndex) : Double.NaN;
+        }
+
+        /**
+         * @return how many games were started by guessing the letter.
+         */
+        public synchronized long getFirstGuesses(char letter) { return firstGuesses[GameSession.letterIndex(letter)]; }
+
+        /**
+         * @return the letter games were most often started with, or 0 if there were no guesses.
+         */
+        public synchronized char getMostCommonFirstGuess() {
+            int best = -1;
+            for (int i = 0; i < 26; i++) {
+                if (firstGuesses[i] > 0 && (best < 0 || firstGuesses[i] > firstGuesses[best])) {
+                    best = i;
+                }
+            }
+            return best < 0 ? 0 : (char) ('A' + best);
+        }
+
+        public synchronized long getGamesForLength(int length) { return gamesByLength[length]; }
+
+        /**
+         * @return the average number of letters guessed in games with words of the length, or NaN if there were none.
+         */
+        public synchronized double getAverageGuesses(int length) {
+            return (double) guessesByLength[length] / gamesByLength[length];
+        }
+
+        /**
+         * @return the average number of wrong guesses in games with words of the length, or NaN if there were none.
+         */
+        public synchronized double getAverageWrongGuesses(int length) {
+            return (double) wrongGuessesByLength[length] / gamesByLength[length];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0])
+                : Paths.get(System.getProperty("user.home"), ".hangman", "history");
+        long simulate = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        Dictionary dictionary = Dictionary.getDefault();
+        if (simulate > 0) {
+            long start = System.nanoTime();
+            Supplier<GuessStrategy> strategies = GuessStrategy.named("frequency", dictionary);
+            GuessStrategy strategy = strategies.get();
+            Random random = new Random();
+            try (GameHistory history = open(directory)) {
+                for (long game = 0; game < simulate; game++) {
+                    int word = dictionary.randomIndex(random);
+                    GameSession session = new GameSession(dictionary.word(word), GameSession.DEFAULT_GUESSES_ALLOWED);
+                    Simulation.play(session, strategy);
+                    history.record(dictionary.fingerprint(), word, session);
+                }
+            }
+            System.out.printf("Recorded %,d simulated games in %.2f s%n", simulate, (System.nanoTime() - start) / 1e9);
+        }
+
+        Summary summary = scan(directory, dictionary.fingerprint());
+        System.out.printf("Scanned %,d games in %.3f s (%,.0f games/s)%n", summary.getGames(), summary.getNanos() / 1e9,
+                summary.getGames() * 1e9 / summary.getNanos());
+        if (summary.getGames() == 0) {
+            return;
+        }
+        char firstGuess = summary.getMostCommonFirstGuess();
+        System.out.printf("Win rate %.2f%%, most common first guess %s (%.1f%% of games)%n",
+                100.0 * summary.getWins() / summary.getGames(), firstGuess == 0 ? "-" : firstGuess,
+                firstGuess == 0 ? 0 : 100.0 * summary.getFirstGuesses(firstGuess) / summary.getGames());
+        System.out.println("Length   Games      Guesses  Wrong");
+        for (int length = 1; length <= Dictionary.MAX_WORD_LENGTH; length++) {
+            if (summary.getGamesForLength(length) > 0) {
+                System.out.printf("%6d %,12d %6.2f %6.2f%n", length, summary.getGamesForLength(length),
+                        summary.getAverageGuesses(length), summary.getAverageWrongGuesses(length));
+            }
+        }
+        List<Integer> hardest = new ArrayList<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            if (summary.getGamesForWord(i) >= 10) {
+                hardest.add(i);
+            }
+        }
+        hardest.sort((a, b) -> Double.compare(summary.getWinRate(a), summary.getWinRate(b)));
+        System.out.println("Hardest words (played at least 10 times):");
+        for (int i = 0; i < Math.min(10, hardest.size()); i++) {
+            int word = hardest.get(i);
+            System.out.printf("  %-30s %6.2f%% of %,d games%n", dictionary.word(word), 100 * summary.getWinRate(word),
+                    summary.getGamesForWord(word));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.Objects;
+
+/**
+ * The state of one game of hangman: the word being guessed, the letters guessed so far and the guesses remaining.
+ * This class has no JavaFX dependencies, so any number of games can be played in one JVM without a window.
+ * Letters are kept as bits (bit 0 is A) and positions in the word as bits of a long (bit 0 is the first letter), so a
+ * guess, a reveal and a win check are a few bit operations and guessing does not allocate.
+ */
+public class GameSession {
+    public static final int DEFAULT_GUESSES_ALLOWED = 10;
+    public static final int MAX_GUESSES_ALLOWED = 255;  //Save files and the journal keep it in an unsigned byte
+    private String word;
+    private final int guessesAllowed;
+    private final long[] letterPositions = new long[26];
+    private final long allPositions;
+    private int guessedLetters;
+    private final byte[] guessOrder = new byte[26];   //Letter indexes, in the order they were guessed
+    private long revealed;
+    private int remainingGuesses;
+
+    /**
+     * Starts a new game.
+     * @param word           the word to guess, only the letters A-Z are allowed (case is ignored).
+     * @param guessesAllowed the number of wrong guesses before the game is lost, 1 to MAX_GUESSES_ALLOWED.
+     */
+    public GameSession(String word, int guessesAllowed) {
+        if (word == null || word.isEmpty() || word.length() > Dictionary.MAX_WORD_LENGTH) {
+            throw new IllegalArgumentException("word must have 1 to " + Dictionary.MAX_WORD_LENGTH + " letters");
+        }
+        if (guessesAllowed <= 0 || guessesAllowed > MAX_GUESSES_ALLOWED) {
+            throw new IllegalArgumentException("guessesAllowed must be 1 to " + MAX_GUESSES_ALLOWED + ": "
+                    + guessesAllowed);
+        }
+        this.word = word.toUpperCase();
+        for (int i = 0; i < this.word.length(); i++) {
+            letterPositions[letterIndex(this.word.charAt(i))] |= 1L << i;
+        }
+        this.allPositions = this.word.length() == 64 ? -1L : (1L << this.word.length()) - 1;
+        this.guessesAllowed = guessesAllowed;
+        this.remainingGuesses = guessesAllowed;
+    }
+
+    /**
+     * Recreates a game from its saved state.
+     * @param word             the word to guess.
+     * @param guessesAllowed   the number of wrong guesses the game started with.
+     * @param guessedLetters   a 26 bit mask of the letters guessed, bit 0 being A.
+     * @param remainingGuesses the guesses left, it has to match the wrong guesses in guessedLetters.
+     * @return
+     */
+    public static GameSession restore(String word, int guessesAllowed, int guessedLetters, int remainingGuesses) {
+        GameSession session = new GameSession(word, guessesAllowed);
+        int wrongGuesses = 0;
+        for (int i = 0; i < 26; i++) {
+            if ((guessedLetters >>> i & 1) != 0) {
+                session.revealed |= session.letterPositions[i];
+                if (session.letterPositions[i] == 0) {
+                    wrongGuesses++;
+                }
+            }
+        }
+        if ((guessedLetters >>> 26) != 0 || remainingGuesses != guessesAllowed - wrongGuesses) {
+            throw new IllegalArgumentException("Guessed letters don't match the remaining guesses");
+        }
+        session.guessedLetters = guessedLetters;
+        session.remainingGuesses = remainingGuesses;
+        int guesses = 0;
+        for (int left = guessedLetters; left != 0; left &= left - 1) {
+            session.guessOrder[guesses++] = (byte) Integer.numberOfTrailingZeros(left);
+        }
+        return session;
+    }
+
+    /**
+     * Converts a letter to its index in the alphabet.
+     * @param letter a letter A-Z in either case.
+     * @return 0 for A up to 25 for Z.
+     */
+    static int letterIndex(char letter) {
+        int index = Character.toUpperCase(letter) - 'A';
+        if (index < 0 || index >= 26) {
+            throw new IllegalArgumentException("Not a letter A-Z: " + letter);
+        }
+        return index;
+    }
+
+    /**
+     * Guesses a letter. A wrong guess costs one of the remaining guesses, guessing the same letter twice costs nothing.
+     * @param letter the letter guessed, in either case.
+     * @return a mask with a bit set for every position of the letter in the word, 0 if the guess was wrong.
+     */
+    public long guess(char letter) {
+        int index = letterIndex(letter);
+        if (isOver()) {
+            throw new IllegalStateException("The game is already over");
+        }
+        int bit = 1 << index;
+        if ((guessedLetters & bit) == 0) {
+            beforeGuess(index);
+            guessOrder[Integer.bitCount(guessedLetters)] = (byte) index;
+            long positions = letterPositions[index];
+            guessedLetters |= bit;
+            revealed |= positions;
+            if (positions == 0) {
+                remainingGuesses -= 1;
+            }
+        }
+        return letterPositions[index];
+    }
+
+    /**
+     * Called when a letter is guessed for the first time, before it is checked against the word.
+     * Does nothing here, game modes that don't settle on a word up front can use it to change the word.
+     * @param letterIndex the letter guessed, 0 being A.
+     */
+    protected void beforeGuess(int letterIndex) {}
+
+    /**
+     * Swaps the word for another one. The new word has to look the same to the player: same length, and the letters
+     * guessed so far at exactly the same positions.
+     * @param word an upper-case word.
+     */
+    protected void changeWord(String word) {
+        long[] positions = new long[26];
+        for (int i = 0; i < word.length(); i++) {
+            positions[letterIndex(word.charAt(i))] |= 1L << i;
+        }
+        for (int i = 0; i < 26; i++) {
+            if ((guessedLetters >>> i & 1) != 0 && positions[i] != letterPositions[i]) {
+                throw new IllegalArgumentException(word + " doesn't match the letters guessed in " + this.word);
+            }
+        }
+        if (word.length() != this.word.length()) {
+            throw new IllegalArgumentException(word + " isn't as long as " + this.word);
+        }
+        System.arraycopy(positions, 0, letterPositions, 0, 26);
+        this.word = word;
+    }
+
+    public boolean isGuessed(char letter) { return (guessedLetters & (1 << letterIndex(letter))) != 0; }
+
+    /**
+     * Gets every position of a letter in the word, whether it was guessed or not.
+     * @param letter
+     * @return a mask with a bit set for every position of the letter.
+     */
+    public long getPositions(char letter) { return letterPositions[letterIndex(letter)]; }
+
+    /**
+     * Checks if the letter at a position in the word has been guessed.
+     * @param position index into the word.
+     * @return
+     */
+    public boolean isRevealed(int position) { return (revealed >>> position & 1) != 0; }
+
+    /**
+     * Gets the letters guessed so far.
+     * @return a 26 bit mask, bit 0 being A.
+     */
+    public int getGuessedLetters() { return guessedLetters; }
+
+    /**
+     * Gets the number of different letters guessed so far.
+     * @return
+     */
+    public int getGuessCount() { return Integer.bitCount(guessedLetters); }
+
+    /**
+     * Gets a letter guessed, in the order they were guessed. A save only has which letters were guessed, so in a
+     * restored game the letters guessed before it was saved come first, in alphabetical order.
+     * @param i 0 for the first guess, up to getGuessCount() - 1.
+     * @return
+     */
+    public char getGuess(int i) { return (char) ('A' + guessOrder[Objects.checkIndex(i, getGuessCount())]); }
+
+    /**
+     * Gets the positions of the word that have been guessed.
+     * @return a mask with bit 0 being the first letter of the word.
+     */
+    public long getRevealed() { return revealed; }
+
+    public String getWord() { return word; }
+
+    public int getGuessesAllowed() { return guessesAllowed; }
+
+    public int getRemainingGuesses() { return remainingGuesses; }
+
+    public int getWrongGuesses() { return guessesAllowed - remainingGuesses; }
+
+    /**
+     * Gets the number of letters in the word that have not been guessed yet.
+     * @return
+     */
+    public int getUnguessedLetters() { return word.length() - Long.bitCount(revealed); }
+
+    public boolean isWon() { return revealed == allPositions; }
+
+    public boolean isLost() { return remainingGuesses == 0 && !isWon(); }
+
+    public boolean isOver() { return remainingGuesses == 0 || revealed == allPositions; }
+}
@@ -0,0 +1,336 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An append-only log of games in progress so they survive a crash without saving the whole game on every guess.
+ * Every new game and guess is appended as a few bytes to an in-memory batch. A background thread writes each batch to
+ * journal.log with a single fsync (group commit), so callers never wait for the disk unless they call sync().
+ * When the log grows past a limit, the games still in progress are written to snapshot.dat and the log starts over.
+ * Opening a journal replays the snapshot and then the log to recover the games that were in progress.
+ * <p>
+ * On disk both files are a sequence of frames, each one an int length, an int CRC32 and that many bytes of records.
+ * A frame that is cut short or fails its checksum ends the file, that is where the crash happened.
+ */
+public class GuessJournal implements Closeable {
+    private static final byte NEW_GAME = 1;
+    private static final byte GUESS = 2;
+    private static final byte END_GAME = 3;
+    private static final byte SNAPSHOT = 4;
+    private static final long DEFAULT_COMPACT_AFTER_BYTES = 4 * 1024 * 1024;
+
+    private final Path snapshotPath;
+    private final FileChannel log;
+    private final long compactAfterBytes;
+    private final Map<Long, GameSession> live = new HashMap<>(); //Our own copy of every game in progress
+    private final Map<Long, GameSession> recovered;
+    private final Thread flusher;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+    private long appended;  //Number of batches handed to the flusher, and how many of those are on disk
+    private long durable;
+    private boolean flusherWaiting;
+    private boolean closed;
+    private IOException failure;
+
+    private GuessJournal(Path directory, long compactAfterBytes) throws IOException {
+        Files.createDirectories(directory);
+        Path logPath = directory.resolve("journal.log");
+        this.snapshotPath = directory.resolve("snapshot.dat");
+        this.compactAfterBytes = compactAfterBytes;
+        if (Files.exists(snapshotPath)) {
+            try (FileChannel snapshot = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+                LogFrames.read(snapshot, this::applyRecords);
+            }
+        }
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        log.truncate(LogFrames.read(log, this::applyRecords)); //Drop whatever was half written when we crashed
+        log.position(log.size());
+        this.recovered = new HashMap<>();
+        for (Map.Entry<Long, GameSession> entry : live.entrySet()) {
+            recovered.put(entry.getKey(), copy(entry.getValue()));
+        }
+        this.flusher = new Thread(this::flushLoop, "guess-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Opens the journal in a directory, creating it if needed, and recovers the games that were in progress.
+     * @param directory
+     * @return
+     * @throws IOException
+     */
+    public static GuessJournal open(Path directory) throws IOException {
+        return new GuessJournal(directory, DEFAULT_COMPACT_AFTER_BYTES);
+    }
+
+    public static GuessJournal open(Path directory, long compactAfterBytes) throws IOException {
+        return new GuessJournal(directory, compactAfterBytes);
+    }
+
+    /**
+     * Gets the games that were in progress when the journal was opened, by the id they were journaled with.
+     * @return
+     */
+    public Map<Long, GameSession> getRecovered() { return recovered; }
+
+    /**
+     * Records a game, either a new one or one that was loaded part way through. Recording a game again with the same id
+     * replaces it, a game that is already over is forgotten.
+     * @param id      the id later guesses will use, ids must be unique among games in progress.
+     * @param session
+     */
+    public synchronized void newGame(long id, GameSession session) {
+        if (session.isOver()) {
+            endGame(id);
+            return;
+        }
+        String word = session.getWord();
+        ByteBuffer buffer = reserve(1 + 8 + 1 + 1 + 1 + 4 + 1 + word.length());
+        buffer.put(NEW_GAME).putLong(id);
+        putState(buffer, session);
+        live.put(id, copy(session));
+        signalFlusher();
+    }
+
+    /**
+     * Records a guess in a game recorded by newGame. Once the guess ends the game it is forgotten.
+     * @param id
+     * @param letter
+     */
+    public synchronized void guess(long id, char letter) {
+        GameSession session = live.get(id);
+        if (session == null || session.isOver()) {
+            return;
+        }
+        reserve(1 + 8 + 1).put(GUESS).putLong(id).put((byte) Character.toUpperCase(letter));
+        session.guess(letter);
+        if (session.isOver()) {
+            live.remove(id);
+        }
+        signalFlusher();
+    }
+
+    /**
+     * Records that a game was abandoned, so it won't be recovered.
+     * @param id
+     */
+    public synchronized void endGame(long id) {
+        if (live.remove(id) != null) {
+            reserve(1 + 8).put(END_GAME).putLong(id);
+            signalFlusher();
+        }
+    }
+
+    /**
+     * Waits until everything recorded so far is on disk.
+     * @throws IOException if writing the journal failed.
+     */
+    public synchronized void sync() throws IOException {
+        long target = pending.position() > 0 ? appended + 1 : appended;
+        signalFlusher();
+        while (durable < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the journal", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes whatever is left and closes the files. Games in progress stay in the journal to be recovered.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private ByteBuffer reserve(int bytes) {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        if (pending.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        return pending;
+    }
+
+    private void signalFlusher() {
+        if (flusherWaiting) {
+            notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            boolean compact;
+            ByteBuffer snapshot = null;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    flusherWaiting = true;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    flusherWaiting = false;
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer batch = pending; //Swap so callers keep appending while this batch is written
+                pending = flushing;
+                flushing = batch;
+                appended++;
+                compact = failure == null && logSize() + flushing.position() > compactAfterBytes;
+                if (compact) {
+                    snapshot = encodeSnapshot();
+                }
+            }
+            try {
+                flushing.flip();
+                LogFrames.write(log, flushing);
+                log.force(false);
+                if (compact) {
+                    writeSnapshot(snapshot);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+            }
+            flushing.clear();
+            synchronized (this) {
+                durable++;
+                notifyAll();
+            }
+        }
+    }
+
+    private long logSize() {
+        try {
+            return log.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Writes every game in progress to snapshot.dat and empties the log. Only the flusher thread writes the log, so
+     * records added after the snapshot was encoded are still in memory and nothing is lost by truncating it.
+     * If we crash before the log is emptied, replaying it on top of the snapshot gives the same games since replaying
+     * a guess twice doesn't change anything.
+     */
+    private void writeSnapshot(ByteBuffer snapshot) throws IOException {
+        Path temp = snapshotPath.resolveSibling("snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            LogFrames.write(channel, snapshot);
+            channel.force(false);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.position(0);
+        log.force(false);
+    }
+
+    private ByteBuffer encodeSnapshot() {
+        int size = 0;
+        for (GameSession session : live.values()) {
+            size += 1 + 8 + 1 + 1 + 1 + 4 + 1 + session.getWord().length();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Map.Entry<Long, GameSession> entry : live.entrySet()) {
+            buffer.put(SNAPSHOT).putLong(entry.getKey());
+            putState(buffer, entry.getValue());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putState(ByteBuffer buffer, GameSession session) {
+        buffer.put((byte) session.getGuessesAllowed());
+        buffer.put((byte) session.getRemainingGuesses());
+        buffer.put((byte) 0); //Reserved
+        buffer.putInt(session.getGuessedLetters());
+        buffer.put((byte) session.getWord().length());
+        buffer.put(session.getWord().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static GameSession getState(ByteBuffer buffer) {
+        int guessesAllowed = buffer.get() & 0xFF;
+        int remainingGuesses = buffer.get() & 0xFF;
+        buffer.get();
+        int guessedLetters = buffer.getInt();
+        byte[] word = new byte[buffer.get() & 0xFF];
+        buffer.get(word);
+        return GameSession.restore(new String(word, StandardCharsets.US_ASCII), guessesAllowed, guessedLetters,
+                remainingGuesses);
+    }
+
+    private static GameSession copy(GameSession session) {
+        return GameSession.restore(session.getWord(), session.getGuessesAllowed(), session.getGuessedLetters(),
+                session.getRemainingGuesses());
+    }
+
+    private void applyRecords(ByteBuffer records) throws IOException {
+        try {
+            while (records.hasRemaining()) {
+                byte type = records.get();
+                long id = records.getLong();
+                switch (type) {
+                    case NEW_GAME:
+                    case SNAPSHOT:
+                        live.put(id, getState(records));
+                        break;
+                    case GUESS:
+                        char letter = (char) records.get();
+                        GameSession session = live.get(id);
+                        if (session != null && !session.isOver()) {
+                            session.guess(letter);
+                            if (session.isOver()) {
+                                live.remove(id);
+                            }
+                        }
+                        break;
+                    case END_GAME:
+                        live.remove(id);
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record " + type);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Journal is corrupt", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * A way of playing hangman without a person, used by bots and simulations.
+ * A strategy only gets to see what a player would: the length of the word, the letters guessed and where they were
+ * revealed. Strategies keep state between guesses, so each thread needs its own instance.
+ */
+public interface GuessStrategy {
+    /**
+     * Called before the first guess of every game.
+     * @param wordLength the length of the word to guess.
+     */
+    void newGame(int wordLength);
+
+    /**
+     * Picks the next letter to guess, it must not have been guessed yet in this game.
+     * @return an upper-case letter.
+     */
+    char nextGuess();
+
+    /**
+     * Tells the strategy how its last guess went.
+     * @param letter    the letter guessed.
+     * @param positions where the letter was revealed, 0 if the guess was wrong.
+     */
+    void guessed(char letter, long positions);
+
+    /**
+     * Gets a strategy by name: "solver", "frequency" or "random".
+     * @param name
+     * @param dictionary the words the solver strategy narrows down.
+     * @return a supplier making a new instance for each thread.
+     */
+    static Supplier<GuessStrategy> named(String name, Dictionary dictionary) {
+        switch (name) {
+            case "solver":
+                return () -> new SolverStrategy(dictionary);
+            case "frequency":
+                return FrequencyStrategy::new;
+            case "random":
+                return RandomStrategy::new;
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    /**
+     * Guesses the letter most of the remaining dictionary words contain.
+     */
+    class SolverStrategy implements GuessStrategy {
+        private final Dictionary dictionary;
+        private Solver solver;
+
+        public SolverStrategy(Dictionary dictionary) { this.dictionary = dictionary; }
+
+        @Override
+        public void newGame(int wordLength) { solver = new Solver(dictionary, wordLength); }
+
+        @Override
+        public char nextGuess() { return solver.bestGuess(); }
+
+        @Override
+        public void guessed(char letter, long positions) { solver.update(letter, positions); }
+    }
+
+    /**
+     * Guesses letters from most to least common in English, ignoring what was revealed.
+     */
+    class FrequencyStrategy implements GuessStrategy {
+        private int next;
+
+        @Override
+        public void newGame(int wordLength) { next = 0; }
+
+        @Override
+        public char nextGuess() { return Solver.LETTERS_BY_FREQUENCY.charAt(next++); }
+
+        @Override
+        public void guessed(char letter, long positions) {}
+    }
+
+    /**
+     * Guesses letters in a random order.
+     */
+    class RandomStrategy implements GuessStrategy {
+        private final Random random = new Random();
+        private final char[] letters = new char[26];
+        private int next;
+
+        @Override
+        public void newGame(int wordLength) {
+            for (int i = 0; i < 26; i++) {
+                letters[i] = (char) ('A' + i);
+            }
+            for (int i = 25; i > 0; i--) {  //Shuffle
+                int j = random.nextInt(i + 1);
+                char swap = letters[i];
+                letters[i] = letters[j];
+                letters[j] = swap;
+            }
+            next = 0;
+        }
+
+        @Override
+        public char nextGuess() { return letters[next++]; }
+
+        @Override
+        public void guessed(char letter, long positions) {}
+    }
+}
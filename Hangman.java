@@ -1,3 +1,4 @@
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -11,27 +12,72 @@ import javafx.scene.text.Font;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 public class Hangman extends Application {
-    private static final int GUESSESALLOWED = 10;
-    static int remainingGuesses = GUESSESALLOWED;
-    private static List<Image> figureStages = new ArrayList<>();
+    private static final int GUESSESALLOWED = GameSession.DEFAULT_GUESSES_ALLOWED;
+    private static final Image[] figureStages = new Image[GUESSESALLOWED];
+    private static final Histogram startupNanos = Metrics.histogram("ui.startup.nanos");
+    private static long mainNanos;
     private static Stage primaryStage;
+    private static volatile DictionaryWatcher dictionaryWatcher;
+    private static volatile boolean stopped;
 
     private static HangmanGame hangmanGame;
     @Override
     public void start(Stage primaryStage) throws Exception {
         Hangman.primaryStage = primaryStage;
+        loadFigureImages();
+        if (System.getProperty("hangman.words") == null) {
+            Thread.ofVirtual().start(() -> {    //Read words.txt while the window opens, rather than on Start
+                try {
+                    Dictionary dictionary = Dictionary.getDefault();
+                    DifficultyIndex.of(dictionary);
+                    dictionary.fingerprint();   //For the game history, rather than at the end of the first game
+                    dictionaryWatcher = DictionaryWatcher.watchDefault();   //New games pick up changes from now on
+                    if (stopped) {  //Closed before it was started
+                        stopWatching();
+                    }
+                } catch (IOException e) {
+                    //Start Playing tells the player
+                }
+            });
+        }
         hangmanGame = new HangmanGame(primaryStage);
         primaryStage.setScene(hangmanGame.getScene());
         primaryStage.setTitle("Hangman");
-        loadFigureImages();
         primaryStage.show();
+        new AnimationTimer() {  //Runs on the first frame after the window is shown
+            @Override
+            public void handle(long now) {
+                stop();
+                startupNanos.recordSince(mainNanos);
+            }
+        }.start();
+    }
+    @Override
+    public void stop() {
+        stopWatching();
+    }
 
+    /**
+     * Stops picking up changes to words.txt, for when the game is closing.
+     */
+    static void stopWatching() {
+        stopped = true;
+        DictionaryWatcher watcher = dictionaryWatcher;
+        if (watcher != null) {
+            dictionaryWatcher = null;
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                //Nothing more we can do, we are exiting anyway
+            }
+        }
     }
+
     public static void main(String[] args){
+        mainNanos = System.nanoTime();
         Application.launch(args);
 
     }
@@ -101,26 +147,24 @@ public class Hangman extends Application {
     }
 
     /**
-     * Adds every image of the hangman in order to the figureStages list.
+     * Starts loading every image of the hangman, in order, into figureStages. They are decoded in the background, so
+     * the window doesn't wait for them, and are long done by the first wrong guess.
      */
     private static void loadFigureImages() {
-        for(int i = 0; i < 10; i++) {
-            figureStages.add(new Image(("hangman_" + i + ".png")));
+        for(int i = 0; i < figureStages.length; i++) {
+            figureStages[i] = ImageCache.get("hangman_" + i + ".png");
         }
     }
 
     /**
      * Updates the hangman drawing to the argument.
      * @param imageView
+     * @param remainingGuesses is the number of guesses the player has left.
      */
-    static void drawNext(ImageView imageView) {
-        int index = GUESSESALLOWED - remainingGuesses - 1;
-        if (index >= 0) { //Can easily get the next drawing by accessing from the list.
-            imageView.setImage(figureStages.get(GUESSESALLOWED - remainingGuesses - 1));
-        }
-        else {
-            imageView = new ImageView(); //Guess hasn't been wrong so display nothing
-        }
+    static void drawNext(ImageView imageView, int remainingGuesses) {
+        int wrongGuesses = GUESSESALLOWED - remainingGuesses;
+        //Drawing i is shown after i + 1 wrong guesses, before the first one there is nothing to show
+        imageView.setImage(wrongGuesses == 0 ? null : figureStages[wrongGuesses - 1]);
     }
 
 
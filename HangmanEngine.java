@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hosts any number of games at once, each one looked up by an id, for servers and bots.
+ * All methods can be called from any thread. Calls on different games don't block each other, calls on the same game
+ * are done one at a time. The games are kept in a SessionStore, which can move idle ones out of memory.
+ */
+public class HangmanEngine {
+    /**
+     * The kinds of game that can be started.
+     */
+    public enum Mode { NORMAL, EVIL }
+
+    public static final int LEADERBOARD_SIZE = 100;
+
+    private volatile Dictionary dictionary;
+    private final SessionStore sessions;
+    private final GameHistory history;
+    private final LiveStats stats;
+    private final GameEvents events = new GameEvents();
+    private final Map<Long, String> players = new ConcurrentHashMap<>();   //Games that have a player, by id
+    private final Map<Long, PlayedWord> words = new ConcurrentHashMap<>();  //Normal games' words, by id
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Makes an engine that keeps every game in memory.
+     * @param dictionary
+     */
+    public HangmanEngine(Dictionary dictionary) {
+        this(dictionary, SessionStore.inMemory());
+    }
+
+    public HangmanEngine(Dictionary dictionary, SessionStore sessions) {
+        this(dictionary, sessions, null);
+    }
+
+    /**
+     * @param dictionary
+     * @param sessions
+     * @param history    where finished games are recorded, null to not keep them. It's flushed by the caller.
+     */
+    public HangmanEngine(Dictionary dictionary, SessionStore sessions, GameHistory history) {
+        this.dictionary = dictionary;
+        this.sessions = sessions;
+        this.history = history;
+        this.stats = new LiveStats(dictionary, LEADERBOARD_SIZE);
+    }
+
+    /**
+     * Where a game's word is in the dictionary it was started with.
+     * @param dictionary the dictionary's fingerprint.
+     * @param word
+     */
+    private record PlayedWord(long dictionary, int word) {}
+
+    public Dictionary getDictionary() { return dictionary; }
+
+    /**
+     * Starts new games with another dictionary, like a reloaded one from a DictionaryWatcher. Games being played keep
+     * the word (or, for evil games, the dictionary) they started with. Results per word, in the stats and the history,
+     * are for the new dictionary from now on: a game started with the old one is counted under its word's index in the
+     * new one, if it's still there.
+     * @param dictionary
+     */
+    public void setDictionary(Dictionary dictionary) {
+        dictionary.fingerprint();   //Worked out here rather than when the next game ends
+        stats.setDictionary(dictionary);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Starts a game with a random word.
+     * @param mode
+     * @return the id of the game.
+     */
+    public long newGame(Mode mode) {
+        return newGame(mode, DifficultyIndex.Level.ANY);
+    }
+
+    /**
+     * Starts a game with a random word of a difficulty. An evil game uses the length of such a word.
+     * The first game with a difficulty other than ANY builds the dictionary's DifficultyIndex.
+     * @param mode
+     * @param level
+     * @return the id of the game.
+     */
+    public long newGame(Mode mode, DifficultyIndex.Level level) {
+        Dictionary dictionary = this.dictionary;   //The same one for the whole call, even if it's replaced meanwhile
+        Random random = ThreadLocalRandom.current();
+        int word = level == DifficultyIndex.Level.ANY ? dictionary.randomIndex(random)
+                : DifficultyIndex.of(dictionary).randomIndex(random, level);
+        if (word < 0) {
+            throw new IllegalStateException("No " + level + " words in the dictionary");
+        }
+        return start(dictionary, mode, word);
+    }
+
+    /**
+     * Starts a game with a player's next unseen word of a difficulty. The player's seed and cursor are all that need
+     * storing between games, wherever the player is kept.
+     * @param mode
+     * @param level
+     * @param scheduler the player's, made with wordCount(level) words.
+     * @return the id of the game.
+     */
+    public long newGame(Mode mode, DifficultyIndex.Level level, WordScheduler scheduler) {
+        Dictionary dictionary = this.dictionary;
+        int words = wordCount(dictionary, level);
+        if (scheduler.getSize() != words) {
+            throw new IllegalArgumentException("Scheduler has " + scheduler.getSize() + " words, the dictionary has "
+                    + words + " " + level + " words");
+        }
+        int rank = scheduler.next();
+        return start(dictionary, mode, level == DifficultyIndex.Level.ANY ? rank
+                : DifficultyIndex.of(dictionary).wordAt(level, rank));
+    }
+
+    /**
+     * Starts a game with the word of the day, the same word for everyone playing that day.
+     * @param mode
+     * @param date
+     * @return the id of the game.
+     */
+    public long newDailyGame(Mode mode, LocalDate date) {
+        Dictionary dictionary = this.dictionary;
+        return start(dictionary, mode, WordScheduler.dailyWord(dictionary.size(), date));
+    }
+
+    /**
+     * @param level
+     * @return how many words there are of the difficulty, the size of a WordScheduler for it.
+     */
+    public int wordCount(DifficultyIndex.Level level) {
+        return wordCount(dictionary, level);
+    }
+
+    private static int wordCount(Dictionary dictionary, DifficultyIndex.Level level) {
+        return level == DifficultyIndex.Level.ANY ? dictionary.size() : DifficultyIndex.of(dictionary).size(level);
+    }
+
+    private long start(Dictionary dictionary, Mode mode, int word) {
+        GameSession session = mode == Mode.EVIL
+                ? new EvilGameSession(dictionary, dictionary.length(word), GameSession.DEFAULT_GUESSES_ALLOWED)
+                : new GameSession(dictionary.word(word), GameSession.DEFAULT_GUESSES_ALLOWED);
+        Metrics.GAMES_STARTED.increment();
+        long id = add(session);
+        if (mode == Mode.NORMAL) {
+            words.put(id, new PlayedWord(dictionary.fingerprint(), word));
+        }
+        return id;
+    }
+
+    /**
+     * Hosts a game that was made somewhere else.
+     * @param session
+     * @return the id of the game.
+     */
+    public long add(GameSession session) {
+        long id = nextId.getAndIncrement();
+        sessions.put(id, session);
+        return id;
+    }
+
+    /**
+     * Reads from a game. No other thread can touch the game while the action runs.
+     * @param id
+     * @param action
+     * @return what the action returned.
+     * @throws NoSuchElementException if there is no such game.
+     */
+    public <T> T read(long id, Function<GameSession, T> action) {
+        return sessions.apply(id, action);
+    }
+
+    /**
+     * Guesses a letter in a game.
+     * @param id
+     * @param letter
+     * @return the positions of the letter in the word, 0 if the guess was wrong.
+     */
+    public long guess(long id, char letter) {
+        HangmanEvents.Guess event = new HangmanEvents.Guess();
+        event.begin();
+        long start = System.nanoTime();
+        long positions = sessions.apply(id, session -> {
+            boolean firstGuess = !session.isOver() && !session.isGuessed(letter);
+            long guessed = session.guess(letter);   //Throws if the game was already over
+            event.gameOver = session.isOver();
+            PlayedWord played = null;
+            if (event.gameOver) {
+                Metrics.gameOver(session);
+                played = record(id, session);
+            }
+            if (firstGuess) {   //In order, the game is ours
+                events.guessed(id, session, Character.toUpperCase(letter), guessed,
+                        played == null ? 0 : played.dictionary(), played == null ? -1 : played.word());
+            }
+            return guessed;
+        });
+        Metrics.GUESS_NANOS.recordSince(start);
+        Metrics.GUESSES.increment();
+        event.letter = letter;
+        event.correct = positions != 0;
+        event.commit();
+        return positions;
+    }
+
+    /**
+     * Counts a finished game in the stats and the history, by its word's index in the current dictionary.
+     * @return where the word is in the current dictionary.
+     */
+    private PlayedWord record(long id, GameSession session) {
+        Dictionary dictionary = this.dictionary;
+        PlayedWord played = words.remove(id);
+        int word = played != null && played.dictionary() == dictionary.fingerprint() ? played.word()
+                : dictionary.indexOf(session.getWord());  //Evil, loaded, or started before the dictionary changed
+        stats.gameOver(players.remove(id), dictionary.fingerprint(), word, session);
+        if (history != null) {
+            try {
+                history.record(dictionary.fingerprint(), word, session);
+            } catch (IOException e) {
+                //The game was still played, it just isn't kept
+            }
+        }
+        return new PlayedWord(dictionary.fingerprint(), word);
+    }
+
+    /**
+     * Says who is playing a game, so it counts towards their win streak in the stats.
+     * @param id
+     * @param player
+     */
+    public void setPlayer(long id, String player) {
+        players.put(id, player);
+    }
+
+    /**
+     * Saves a game in the .hng format.
+     * @param id
+     * @return the bytes of a .hng file holding just this game.
+     */
+    public byte[] save(long id) {
+        ByteBuffer buffer = sessions.apply(id, session -> SaveFile.encode(Collections.singletonList(session)));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Starts hosting a game saved by save() or read from a .hng file.
+     * @param saved
+     * @return the id of the game.
+     * @throws IOException if the bytes aren't a save of exactly one game.
+     */
+    public long load(byte[] saved) throws IOException {
+        List<GameSession> loaded = SaveFile.decode(ByteBuffer.wrap(saved));
+        if (loaded.size() != 1) {
+            throw new IOException("Expected 1 game, got " + loaded.size());
+        }
+        return add(loaded.get(0));
+    }
+
+    /**
+     * Stops hosting a game.
+     * @param id
+     */
+    public void remove(long id) {
+        players.remove(id);
+        words.remove(id);
+        sessions.remove(id);
+    }
+
+    public long getSessionCount() { return sessions.size(); }
+
+    public SessionStore getSessions() { return sessions; }
+
+    /**
+     * @return where finished games are recorded, or null if they aren't.
+     */
+    public GameHistory getHistory() { return history; }
+
+    /**
+     * @return live totals of the games finished, see LiveStats.
+     */
+    public LiveStats getStats() { return stats; }
+
+    /**
+     * @return the events of every guess in every game, see GameEvents. The game ids are this engine's.
+     */
+    public GameEvents getEvents() { return events; }
+}
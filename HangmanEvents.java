@@ -0,0 +1,85 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events for the game, so a recording shows where the time went next to GC, I/O and the rest.
+ * Record with java -XX:StartFlightRecording=filename=hangman.jfr and open the file in JDK Mission Control, they are
+ * under Hangman. Events are close to free when no recording is running.
+ */
+public final class HangmanEvents {
+    private HangmanEvents() {}
+
+    @Name("hangman.DictionaryLoad")
+    @Label("Dictionary Load")
+    @Category("Hangman")
+    @Description("Reading and indexing the word list")
+    public static class DictionaryLoad extends Event {
+        @Label("Words")
+        public int words;
+
+        @Label("Compiled")
+        @Description("Whether a compiled words.dict was mapped instead of reading words.txt")
+        public boolean compiled;
+    }
+
+    @Name("hangman.ImageLoad")
+    @Label("Image Load")
+    @Category("Hangman")
+    @Description("Loading an image in the background, from asking for it to it being decoded")
+    public static class ImageLoad extends Event {
+        @Label("Image")
+        public String name;
+    }
+
+    @Name("hangman.Guess")
+    @Label("Guess")
+    @Category("Hangman")
+    @StackTrace(false)
+    public static class Guess extends Event {
+        @Label("Letter")
+        public char letter;
+
+        @Label("Correct")
+        public boolean correct;
+
+        @Label("Game Over")
+        public boolean gameOver;
+    }
+
+    @Name("hangman.Save")
+    @Label("Save")
+    @Category("Hangman")
+    @Description("Writing games to a .hng file")
+    public static class Save extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Games")
+        public int games;
+
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("hangman.Load")
+    @Label("Load")
+    @Category("Hangman")
+    @Description("Reading games from a .hng file")
+    public static class Load extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Games")
+        public int games;
+
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -1,59 +1,92 @@
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ToolBar;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HangmanGame {
-    private static ImageView saveIcon = new ImageView(new Image("Save.png"));
-    private static ImageView newIcon = new ImageView(new Image("New.png"));
-    private static ImageView loadIcon = new ImageView(new Image("Load.png"));
-    private static ImageView exitIcon = new ImageView(new Image("Exit.png"));
+    private static ImageView saveIcon = new ImageView(ImageCache.get("Save.png"));
+    private static ImageView newIcon = new ImageView(ImageCache.get("New.png"));
+    private static ImageView loadIcon = new ImageView(ImageCache.get("Load.png"));
+    private static ImageView exitIcon = new ImageView(ImageCache.get("Exit.png"));
     private static Button newButton = new Button("New", newIcon);
     private static Button loadButton = new Button("Load", loadIcon);
     private static Button saveButton = new Button("Save", saveIcon);
     private static Button exitButton = new Button("Exit", exitIcon);
+    private static Button hintButton = new Button("Hint");
     private static Button startButton = new Button("Start Playing");
-    private static ToolBar toolBar = new ToolBar(newButton, loadButton, saveButton, exitButton);
+    private static ChoiceBox<String> modeChoice = new ChoiceBox<>();
+    private static ChoiceBox<String> difficultyChoice = new ChoiceBox<>();
+    private static ToolBar toolBar = new ToolBar(newButton, loadButton, saveButton, exitButton, hintButton);
     private static BorderPane borderPane = new BorderPane();
     private static final int letterButtonWidth = 60;
     private static final int letterButtonHeight = 60;
+    //Shared by every letter button, instead of a new Background or a style to parse for each guess. Letters that
+    //aren't guessed yet get one too, the default stylesheet never draws over a background we've set.
+    private static final Background unguessedBackground = letterBackground(Color.GAINSBORO);
+    private static final Background correctBackground = letterBackground(Color.GREEN);
+    private static final Background wrongBackground = letterBackground(Color.RED);
+    private static final Background hintBackground = letterBackground(Color.GOLD);
+    private static final Histogram gameStartNanos = Metrics.histogram("ui.game.start.nanos");
+    private static final Histogram resizeLayoutNanos = Metrics.histogram("ui.resize.layout.nanos");
+    private static final Histogram resizeFrameNanos = Metrics.histogram("ui.resize.frame.nanos");
+    private static final long HISTORY_FLUSH_SECONDS = 10;
     private WordChooser wordChooser = new WordChooser();
     private Label remainingGuessesLabel = new Label();
     private Scene scene;
-    private List<Integer> guessedLetters;
     private boolean isGameModified;
     private List<Button> letterButtons;
+    private GridPane letterGrid;
     private VBox vBox;
     private ImageView figure;
+    private double laidOutWidth;
+    private long laidOutNanos;
+    private GuessJournal journal;
+    private GameHistory history;
+    private final AtomicBoolean historyFlushScheduled = new AtomicBoolean();
+    private final GameEvents events = new GameEvents();
+    private Solver solver;
+    private long journalId;
 
     public HangmanGame(Stage primaryStage) {
-        vBox = new VBox();
         figure = new ImageView();
         setupBorderPane();
         scene = new Scene(borderPane, 1200, 1200);
-        setupButtons(primaryStage);
-        guessedLetters = new ArrayList<>();
         letterButtons = new ArrayList<>();
+        letterGrid = createLetterButtons();
+        vBox = new VBox(remainingGuessesLabel, wordChooser.getLetterLabels(), letterGrid);
+        vBox.setPadding(new Insets(10, 20, 0, 0));
+        vBox.setSpacing(100);
+        setupButtons(primaryStage);
+        setupKeyInput();
         isGameModified = false;
         remainingGuessesLabel.setFont(new Font("Andale Mono", 20));
-
+        setupJournal();
+        setupHistory();
+        setupEvents();
     }
 
     public Scene getScene() { return this.scene; }
@@ -62,11 +95,132 @@ public class HangmanGame {
         return isGameModified;
     }
 
+    /**
+     * Opens the journal every guess is autosaved to, and if the last run crashed in the middle of a game, puts that
+     * game back on screen. If the journal can't be opened the game is still playable, just without autosave.
+     */
+    private void setupJournal() {
+        try {
+            journal = GuessJournal.open(Paths.get(System.getProperty("user.home"), ".hangman", "journal"));
+        } catch (IOException e) {
+            journal = null;
+            return;
+        }
+        for (Map.Entry<Long, GameSession> entry : journal.getRecovered().entrySet()) {
+            if (entry.getKey() >= journalId) {  //Resume the most recent game
+                journalId = entry.getKey();
+                wordChooser.clear();
+                wordChooser.setSession(entry.getValue());
+            }
+        }
+        if (wordChooser.getSession() != null) {
+            Hangman.drawNext(figure, wordChooser.getSession().getRemainingGuesses());
+            borderPane.setCenter(figure);
+            this.displayWordBoxAndLetters();
+            isGameModified = true;
+            saveButton.setDisable(false);
+        }
+    }
+
+    /**
+     * Opens the history finished games are kept in. If it can't be opened the game is still playable, games just
+     * aren't kept.
+     */
+    private void setupHistory() {
+        try {
+            history = GameHistory.open(Paths.get(System.getProperty("user.home"), ".hangman", "history"));
+        } catch (IOException e) {
+            history = null;
+        }
+    }
+
+    /**
+     * Subscribes the window and the metrics to the game's events. Only the window is on the FX thread, the metrics
+     * follow along on their own. The history isn't fed from events, a subscriber that falls behind misses some, see
+     * recordHistory.
+     */
+    private void setupEvents() {
+        events.subscribe(new FxEventBatcher(this::showEvents));
+        events.subscribe(event -> {
+            if (event instanceof GameEvents.GameWon || event instanceof GameEvents.GameLost) {
+                Metrics.gameOver(event.session());
+            }
+        });
+    }
+
+    /**
+     * Records a game that just finished in the history, right where it finished so it can't be missed. Only memory is
+     * touched, games are flushed to disk at most once every HISTORY_FLUSH_SECONDS, a game finished after a flush waits
+     * for the next one.
+     */
+    private void recordHistory(long dictionary, int wordIndex, GameSession session) {
+        if (history == null) {
+            return;
+        }
+        try {
+            history.record(dictionary, wordIndex, session);
+        } catch (IOException e) {
+            return; //The game was still played, it just isn't kept
+        }
+        if (historyFlushScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::flushHistory,
+                    CompletableFuture.delayedExecutor(HISTORY_FLUSH_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private void flushHistory() {
+        historyFlushScheduled.set(false);   //Games recorded from now on schedule another flush
+        try {
+            history.flush();
+        } catch (IOException e) {
+            //Tried again after the next game
+        }
+    }
+
+    /**
+     * Stops publishing events, then closes the journal and the history, which flushes the games it has.
+     */
+    private void closeJournalAndHistory() {
+        events.close();
+        if (journal != null) {
+            try {
+                journal.endGame(journalId);
+                journal.close();
+            } catch (IOException ex) {
+                //Nothing more we can do, we are exiting anyway
+            }
+        }
+        if (history != null) {
+            try {
+                history.close();
+            } catch (IOException ex) {
+                //Nothing more we can do, we are exiting anyway
+            }
+        }
+    }
+
+    /**
+     * Records the game on screen in the journal, so its guesses are autosaved from now on.
+     */
+    private void journalNewGame() {
+        if (journal != null) {
+            journalId++;
+            journal.newGame(journalId, wordChooser.getSession());
+        }
+    }
+
     private void setupBorderPane() {
         toolBar.setOrientation(Orientation.HORIZONTAL);
         toolBar.setBackground(new Background(new BackgroundFill(Color.BLACK, CornerRadii.EMPTY, Insets.EMPTY)));
         borderPane.setTop(toolBar);
-        StackPane stackPane = new StackPane(startButton);
+        modeChoice.getItems().addAll("Normal", "Evil");
+        modeChoice.setValue("Normal");
+        difficultyChoice.getItems().addAll("Any", "Easy", "Medium", "Hard");
+        difficultyChoice.setValue("Any");
+        HBox startBox = new HBox(startButton, modeChoice, difficultyChoice);
+        startBox.setAlignment(Pos.CENTER);
+        startBox.setSpacing(10);
+        StackPane stackPane = new StackPane(startBox);
         stackPane.setBackground(new Background(new BackgroundFill(Color.GRAY, new CornerRadii(3), Insets.EMPTY)));
         stackPane.setPrefHeight(45);
         borderPane.setBottom(stackPane);
@@ -77,14 +231,18 @@ public class HangmanGame {
      * It also sets up the red x button on the top of the window to ask the user to save the game before exiting just
      * like the toolbar's exit button.
      * Also, the method writes an event listener for the screen's width. If the screen is ever resized the nodes will
-     * adjust their sizes accordingly.
+     * adjust their sizes accordingly, about once a frame however many resize events came in during it.
      * @param primaryStage is used to show the file chooser window
      */
     private void setupButtons(Stage primaryStage) {
         saveButton.setDisable(true);
+        hintButton.setDisable(true);
         startButton.setDisable(true);
         startButton.setVisible(false);
+        modeChoice.setVisible(false);
+        difficultyChoice.setVisible(false);
         setupExitButton();
+        setupHintButton();
         setupNewButton();
         setupSaveButton(primaryStage);
         setupLoadButton(primaryStage);
@@ -93,28 +251,55 @@ public class HangmanGame {
             event.consume();
             exitButton.fire();
         });
-        //Setting up a listener to listen for any changes in screen size.
-        primaryStage.widthProperty().addListener((obs, oldVal, newVal) -> {
-            double screenWidth = primaryStage.getWidth();
-            for (LetterLabel l: wordChooser.getLetterLabelsList()) {
-                l.setLabelWidth((screenWidth / 3) / wordChooser.getChosenWord().length()); //For every black box we will set its width.
+        //Setting up a listener to listen for any changes in screen size. Dragging the window fires it for every pixel,
+        //so the first change starts a pause of about a frame and the window is laid out once at the end of it. Changes
+        //during the pause are picked up by that layout.
+        PauseTransition layoutPause = new PauseTransition(Duration.millis(16));
+        layoutPause.setOnFinished(event -> {
+            long start = System.nanoTime();
+            if (start - laidOutNanos < 1_000_000_000) {  //Still the same drag, so this is the time between its layouts
+                resizeFrameNanos.record(start - laidOutNanos);
             }
-            vBox.setPrefWidth(screenWidth / 2); //Set the black boxes, and letter button table to take up half the screen.
-            figure.setFitWidth(screenWidth / 2);  //Set stick figure image to take up the other half of the screen
-            figure.setFitHeight(screenWidth / 2);
-            for(Button button: letterButtons) {
-                button.setPrefWidth((screenWidth / 2) / 7); //For each button in the letter button table give it an equal
-                button.setPrefHeight((screenWidth / 2) / 7); //size that all buttons together will have width of half the screen.
+            laidOutNanos = start;
+            layout(primaryStage.getWidth());
+            resizeLayoutNanos.recordSince(start);
+        });
+        primaryStage.widthProperty().addListener((obs, oldVal, newVal) -> {
+            if (layoutPause.getStatus() != Animation.Status.RUNNING) {
+                layoutPause.play();
             }
         });
     }
 
+    /**
+     * Sizes the word, the letter table and the figure for the window's width.
+     * @param screenWidth
+     */
+    private void layout(double screenWidth) {
+        for (LetterLabel l: wordChooser.getLetterLabelsList()) {
+            l.setLabelWidth((screenWidth / 3) / wordChooser.getChosenWord().length()); //For every black box we will set its width.
+        }
+        if (screenWidth == laidOutWidth) {  //Only the word changed since the last layout
+            return;
+        }
+        laidOutWidth = screenWidth;
+        vBox.setPrefWidth(screenWidth / 2); //Set the black boxes, and letter button table to take up half the screen.
+        figure.setFitWidth(screenWidth / 2);  //Set stick figure image to take up the other half of the screen
+        figure.setFitHeight(screenWidth / 2);
+        for(Button button: letterButtons) {
+            button.setPrefWidth((screenWidth / 2) / 7); //For each button in the letter button table give it an equal
+            button.setPrefHeight((screenWidth / 2) / 7); //size that all buttons together will have width of half the screen.
+        }
+    }
+
     private void setupNewButton() {
         Button temp = new Button(); //A temporary button to hold the actual action of the new button
         temp.setOnAction(event -> { //This is because we want to throw a popup if the game is modified and then run
             this.clearScene();      //the new action or immediately run the action if game not modified.
             startButton.setDisable(false);
             startButton.setVisible(true);
+            modeChoice.setVisible(true);
+            difficultyChoice.setVisible(true);
         });
         newButton.setOnMousePressed(e -> {
             if(isGameModified) {
@@ -130,6 +315,8 @@ public class HangmanGame {
         exitButton.setOnAction(e -> {
             Button temp = new Button();
             temp.setOnAction(event -> {
+                closeJournalAndHistory();
+                Hangman.stopWatching();
                 Platform.exit();
                 System.exit(0);
             });
@@ -147,30 +334,65 @@ public class HangmanGame {
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Hangman Game");
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Hangman Saves", "*.hng"));
+            File selectedFile = fileChooser.showSaveDialog(primaryStage);
+            if (selectedFile == null) { //The user closed the file chooser without picking a file
+                return;
+            }
             try {
-                File selectedFile = fileChooser.showSaveDialog(primaryStage);
-                PrintWriter output = new PrintWriter(selectedFile);
-                output.println(wordChooser.getChosenWord());
-                output.println(wordChooser.getChosenWord().length() - wordChooser.getUnguessedLetters());
-                for (LetterLabel l: wordChooser.getLetterLabelsList()) {
-                    if(l.wasGuessed()) {
-                        output.println(l.getLetter());
-                    }
-                }
-                output.println(Hangman.getGuessesAllowed() - Hangman.remainingGuesses);
-                output.println(guessedLetters.size());
-                for (Integer index: guessedLetters) {
-                    output.println(index);
-                }
+                SaveFile.save(selectedFile.toPath(), wordChooser.getSession());
                 this.isGameModified = false;
                 saveButton.setDisable(true);
-                output.close();
-            } catch (FileNotFoundException e) {
-            } catch (NullPointerException e) {
+            } catch (IOException e) {
+                Hangman.displayGameOverAlert("Error: could not save the game.");
+            }
+        });
+    }
+
+    /**
+     * The hint button highlights the letter the solver would guess next, working from what the player can see.
+     * The solver works from the words the game's word came from, and is kept for the rest of the game and narrowed
+     * down with every guess. For a word from a file given with -Dhangman.words it's made from the file's words of the
+     * same length, read on another thread.
+     */
+    private void setupHintButton() {
+        hintButton.setOnAction(event -> {
+            GameSession session = wordChooser.getSession();
+            if (session == null || session.isOver()) {
+                return;
+            }
+            if (solver != null) {
+                showHint();
+                return;
             }
+            Dictionary dictionary = wordChooser.getDictionary();
+            if (dictionary != null) {
+                solver = Solver.forSession(dictionary, session);
+                showHint();
+                return;
+            }
+            hintButton.setDisable(true);
+            wordChooser.wordsOfLength(session.getWord().length()).whenCompleteAsync((words, e) -> {
+                if (wordChooser.getSession() != session || session.isOver()) {
+                    return; //Too late for this game
+                }
+                hintButton.setDisable(false);
+                if (words == null) {
+                    Hangman.displayGameOverAlert("Error: no words to give a hint from.");
+                    return;
+                }
+                solver = Solver.forSession(words, session);
+                showHint();
+            }, Platform::runLater);
         });
     }
 
+    private void showHint() {
+        char letter = solver.bestGuess();
+        if (letter != 0) {
+            letterButtons.get(letter - 65).setBackground(hintBackground);
+        }
+    }
+
     /**
      * Just like the new button, uses a temp button to hold the actual loading action. The exit button fires temp.
      * @param primaryStage is used to show the file chooser window
@@ -181,31 +403,23 @@ public class HangmanGame {
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Load Hangman Game");
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Hangman Saves", "*.hng"));
+            File selectedFile = fileChooser.showOpenDialog(primaryStage);
+            if (selectedFile == null) {
+                return;
+            }
             try {
-                File selectedFile = fileChooser.showOpenDialog(primaryStage);
-                Scanner reader = new Scanner(selectedFile);
+                GameSession session = SaveFile.load(selectedFile.toPath());
+                long start = System.nanoTime();
                 this.clearScene();
-                wordChooser.setChosenWord(reader.nextLine());
-                int numGuesses = reader.nextInt();
-                reader.nextLine();
-                for(int i = 0; i < numGuesses; i++) {
-                    String letter = reader.nextLine();
-                    wordChooser.checkGuessCorrect(letter);
-                    this.guessedLetters.add(letter.charAt(0) - 65);
-                }
-                numGuesses = reader.nextInt();
-                int guessedLettersSize = reader.nextInt();
-                for(int i = 0; i < guessedLettersSize; i++) {
-                    this.guessedLetters.add(reader.nextInt());
-                }
-                reader.close();
-                Hangman.remainingGuesses = Hangman.getGuessesAllowed() - numGuesses;
-                Hangman.drawNext(figure);
+                wordChooser.setSession(session);
+                journalNewGame();
+                Hangman.drawNext(figure, session.getRemainingGuesses());
                 borderPane.setCenter(figure);
                 this.displayWordBoxAndLetters();
                 startButton.setDisable(true);
-            } catch (FileNotFoundException e) {
-            } catch (NullPointerException e) {
+                gameStartNanos.recordSince(start);
+            } catch (IOException e) {
+                Hangman.displayGameOverAlert("Error: could not load '" + selectedFile.getName() + "'.");
             }
         });
         loadButton.setOnMousePressed(e -> {
@@ -220,33 +434,55 @@ public class HangmanGame {
 
     /**
      * Adding functionality to start playing button, if there is no words.txt in directory, it will show a popup.
+     * The choice boxes next to it pick between a normal game and an evil one, and how hard the word should be.
      */
     private void setupStartButton() {
         startButton.setOnAction(e -> {
             startButton.setDisable(true);
-            Hangman.remainingGuesses = Hangman.getGuessesAllowed();
+            long start = System.nanoTime();
             try {
                 this.clearScene();
                 wordChooser.setListOfWords();
-                wordChooser.setRandomWord();
-                this.displayWordBoxAndLetters();
-            } catch(FileNotFoundException fnf) {
-                Hangman.displayGameOverAlert("Error: no 'words.txt' detected.");
-            }catch (NullPointerException ex) {
+                DifficultyIndex.Level level = DifficultyIndex.Level.valueOf(difficultyChoice.getValue().toUpperCase());
+                if ("Evil".equals(modeChoice.getValue())) {
+                    wordChooser.setRandomEvilWord(level).whenCompleteAsync((started, ex) -> {
+                        if (ex != null) {
+                            Hangman.displayGameOverAlert("Error: could not read the list of words.");
+                        }
+                        else if (started) {
+                            showNewGame(start);
+                        }
+                    }, Platform::runLater);
+                }
+                else {
+                    wordChooser.setRandomWord(level);
+                    showNewGame(start);
+                }
+            } catch(IOException ex) {
                 Hangman.displayGameOverAlert("Error: no 'words.txt' detected.");
             }
         });
     }
 
+    private void showNewGame(long start) {
+        journalNewGame();
+        Metrics.GAMES_STARTED.increment();
+        this.displayWordBoxAndLetters();
+        gameStartNanos.recordSince(start);
+    }
+
     /**
      * Disables all buttons besides tool bar buttons excluding save.
      * And removes all labels and images.
      */
     private void clearScene() {
+        if (journal != null) {
+            journal.endGame(journalId);
+        }
         wordChooser.clear();
-        this.guessedLetters.clear();
-        borderPane.setRight(new VBox());
-        borderPane.setCenter(new ImageView());
+        solver = null;
+        borderPane.setRight(null);
+        borderPane.setCenter(null);
         this.isGameModified = false;
         saveButton.setDisable(true);
         disableAllLetterButtons();
@@ -254,61 +490,55 @@ public class HangmanGame {
 
     /**
      * Puts the table of letters on screen as well as the black boxes for the word to be guessed.
+     * The nodes are the same every game, they are just reset for the new word.
      */
     private void displayWordBoxAndLetters() {
-        remainingGuessesLabel.setText("Remaining guesses: " + Hangman.remainingGuesses);
-        vBox = new VBox(remainingGuessesLabel, wordChooser.getLetterLabels(), createLetterButtons());
-        setupKeyInput();
-        vBox.setPadding(new Insets(10, 20, 0, 0));
-        vBox.setSpacing(100);
+        remainingGuessesLabel.setText("Remaining guesses: " + wordChooser.getSession().getRemainingGuesses());
+        wordChooser.getLetterLabels();
+        resetLetterButtons();
         borderPane.setRight(vBox);
+        hintButton.setDisable(false);
     }
 
     /**
-     * Creates all the buttons for the letters in a table like format.
+     * Enables and uncolours the letter buttons for a new game. Letters that were already guessed, which happens when
+     * a game is loaded, are disabled and coloured green or red right away.
+     */
+    private void resetLetterButtons() {
+        GameSession session = wordChooser.getSession();
+        for (Button button : letterButtons) {
+            char letter = button.getText().charAt(0);
+            if (!session.isGuessed(letter)) {
+                button.setDisable(false);
+                button.setBackground(unguessedBackground);
+            }
+            else {
+                button.setBackground(session.getPositions(letter) != 0 ? correctBackground : wrongBackground);
+                button.setDisable(true);
+            }
+        }
+    }
+
+    private static Background letterBackground(Color color) {
+        return new Background(new BackgroundFill(color, CornerRadii.EMPTY, Insets.EMPTY));
+    }
+
+    /**
+     * Creates all the buttons for the letters in a table like format, once, they are reused by every game.
      * To make the buttons we loop through every letter A-Z and give it an action.
      * The grid pane allows for 7 elements in a row with 4 rows.
      * @return a gridpane of the all the buttons to be put onto the screen.
      */
     private GridPane createLetterButtons() {
-        letterButtons.clear();
         GridPane gridPane = new GridPane();
         for(char i = 'A', j = 0; i <= 'Z'; j++) {
             for(int k = 0; k < 7 && i <= 'Z'; i++, k++) {
                 Button button = new Button();
                 button.setPrefSize(letterButtonWidth, letterButtonHeight);
                 button.setText(Character.toString(i));
-                if(guessedLetters.contains(i - 65)) {   //This if is useful when we have loaded a game
-                    button.setDisable(true);            //If in the loaded game this was guessed, disable button
-                    if(wordChooser.getChosenWord().contains(Character.toString(i))) {  //If it was good guess, make green
-                        BackgroundFill green = new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, Insets.EMPTY);
-                        button.setBackground(new Background(green));
-                    }
-                    else {  //else bad guess, make red.
-                        BackgroundFill red = new BackgroundFill(Color.RED, CornerRadii.EMPTY, Insets.EMPTY);
-                        button.setBackground(new Background(red));
-                    }
-                }
-                char finalI = i;
-                button.setOnAction(event -> {
-                    if(!isGameModified) {   //If the game hasnt changed until this button press, enable the save button.
-                        isGameModified = true;
-                        saveButton.setDisable(false);
-                    }
-                    guessedLetters.add(finalI - 65);    //Add this button's index to our guessed letters list.
-                    button.setDisable(true);
-                    if(wordChooser.checkGuessCorrect(button.getText())) {
-                        handleGuess(true);
-                        BackgroundFill green = new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, Insets.EMPTY);
-                        button.setBackground(new Background(green));
-
-                    }
-                    else {
-                        handleGuess(false);
-                        BackgroundFill red = new BackgroundFill(Color.RED, CornerRadii.EMPTY, Insets.EMPTY);
-                        button.setBackground(new Background(red));
-                    }
-                });
+                button.setDisable(true);    //Until a game starts
+                button.setBackground(unguessedBackground);
+                button.setOnAction(event -> guess(button));
                 letterButtons.add(button);
                 gridPane.add(button, k, j);
             }
@@ -336,28 +566,91 @@ public class HangmanGame {
         for (Button button : letterButtons) {
             button.setDisable(true);
         }
+        hintButton.setDisable(true);
     }
 
-    private void handleGuess(boolean guess) {
-        if(!guess) {    //If guess is wrong
-            Hangman.remainingGuesses -= 1;
-            Hangman.drawNext(figure);
-            borderPane.setCenter(figure);
-            remainingGuessesLabel.setText("Remaining guesses: " + Hangman.remainingGuesses);
+    /**
+     * Guesses the button's letter. Only the game, the journal, the solver and, once the game is over, the history are
+     * updated here, right away, and the game's events are published. The window catches up from the events on the
+     * next pulse, in showEvents.
+     * @param button
+     */
+    private void guess(Button button) {
+        GameSession session = wordChooser.getSession();
+        char letter = button.getText().charAt(0);
+        if (session == null || session.isOver() || session.isGuessed(letter)) {   //Keys can beat the next pulse
+            return;
+        }
+        HangmanEvents.Guess guessEvent = new HangmanEvents.Guess();
+        guessEvent.begin();
+        long start = System.nanoTime();
+        if(!isGameModified) {   //If the game hasnt changed until this button press, enable the save button.
+            isGameModified = true;
+            saveButton.setDisable(false);
+        }
+        button.setDisable(true);
+        long positions = session.guess(letter);
+        if (journal != null && session instanceof EvilGameSession) {
+            journal.newGame(journalId, session); //The word may have changed
         }
-        if(Hangman.remainingGuesses == 0) { //If no more remaining guesses, lose
-            wordChooser.revealWord();
+        else if (journal != null) {
+            journal.guess(journalId, letter);
+        }
+        if (solver != null) {
+            solver.update(letter, session.getPositions(letter));
+        }
+        if (session.isOver()) {
             this.isGameModified = false;
             saveButton.setDisable(true);
             disableAllLetterButtons();
-            Hangman.displayGameOverAlert("You lost. (The word was \"" + wordChooser.getChosenWord() + "\")");
+        }
+        if (session.isOver()) { //Looked up here, the word chooser is only used on the FX thread
+            Dictionary dictionary = wordChooser.getDictionary();
+            long fingerprint = dictionary == null ? 0 : dictionary.fingerprint();
+            int wordIndex = wordChooser.getWordIndex();
+            recordHistory(fingerprint, wordIndex, session);
+            events.guessed(journalId, session, letter, positions, fingerprint, wordIndex);
+        }
+        else {
+            events.guessed(journalId, session, letter, positions);
+        }
+        Metrics.GUESS_NANOS.recordSince(start);
+        Metrics.GUESSES.increment();
+        guessEvent.letter = letter;
+        guessEvent.correct = positions != 0;
+        guessEvent.gameOver = session.isOver();
+        guessEvent.commit();
+    }
 
+    /**
+     * Shows a pulse's worth of game events. Events from a game that has been replaced since are skipped, and the
+     * figure is only redrawn once however many lives were lost.
+     * @param batch
+     */
+    private void showEvents(List<GameEvents.Event> batch) {
+        int remainingGuesses = -1;
+        for (GameEvents.Event event : batch) {
+            if (event.session() != wordChooser.getSession()) {
+                continue;
+            }
+            switch (event) {
+                case GameEvents.GuessMade guess ->
+                        letterButtons.get(guess.letter() - 'A')
+                                .setBackground(guess.correct() ? correctBackground : wrongBackground);
+                case GameEvents.LetterRevealed revealed ->
+                        wordChooser.showLetter(revealed.letter(), revealed.positions());
+                case GameEvents.LifeLost lifeLost -> remainingGuesses = lifeLost.remainingGuesses();
+                case GameEvents.GameLost lost -> {
+                    wordChooser.revealWord();
+                    Hangman.displayGameOverAlert("You lost. (The word was \"" + lost.session().getWord() + "\")");
+                }
+                case GameEvents.GameWon won -> Hangman.displayGameOverAlert("You won.");
+            }
         }
-        else if(wordChooser.getUnguessedLetters() == 0) { //If we have guessed all letters in the word, win
-            Hangman.displayGameOverAlert("You won.");
-            this.isGameModified = false;
-            saveButton.setDisable(true);
-            disableAllLetterButtons();
+        if (remainingGuesses >= 0) {
+            Hangman.drawNext(figure, remainingGuesses);
+            borderPane.setCenter(figure);
+            remainingGuessesLabel.setText("Remaining guesses: " + remainingGuesses);
         }
     }
 }
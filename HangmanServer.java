@@ -0,0 +1,304 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hosts games for many players at once over a simple text protocol on a local TCP port, without JavaFX.
+ * Every connection gets its own virtual thread, so tens of thousands of players can be connected at the same time.
+ * Games live in a HangmanEngine and are looked up by id, so a player can reconnect and keep playing.
+ * <p>
+ * Each request is one line and gets one line back:
+ * <pre>
+ *   NEW [NORMAL|EVIL] [ANY|EASY|MEDIUM|HARD]
+ *                         starts a game, normal and any difficulty by default
+ *   NEXT seed cursor [NORMAL|EVIL] [ANY|EASY|MEDIUM|HARD]
+ *                         starts a game with a player's next unseen word, see WordScheduler. The server keeps
+ *                         nothing per player, the player's next game is NEXT seed cursor+1
+ *   DAILY [NORMAL|EVIL]   starts a game with today's word (UTC), the same for every player
+ *   PLAYER name           says who is playing on this connection, games started after it count towards their stats
+ *   STATS                 gets the live stats, answered with STATS games= won= lost= winRate= wrongGuessesPerGame=
+ *                         players= and then, once PLAYER was sent, player= games= wins= streak= bestStreak=
+ *   LEADERS [count]       gets the best win streaks, 10 by default, answered with LEADERS and a name:streak:misses
+ *                         for each player, best first
+ *   GUESS id letter       guesses a letter
+ *   STATE id              gets a game without changing it
+ *   SAVE id               gets a game as a base64 .hng save, answered with SAVED data
+ *   LOAD data             starts hosting a game saved with SAVE
+ *   END id                stops hosting a game, answered with ENDED id
+ *   METRICS               gets the server's metrics, the lines of Metrics.dump() joined with "; "
+ *   QUIT                  closes the connection, answered with BYE
+ * </pre>
+ * Games are answered with "OK id pattern remainingGuesses status guessedLetters [word]", where the pattern has _ for
+ * letters not guessed yet, the status is PLAYING, WON or LOST, guessed letters is - when there are none, and the word
+ * is only sent once the game is over. Anything that goes wrong is answered with "ERR message".
+ * <p>
+ * Run with: java HangmanServer [port] [spill directory] [games in memory] [idle minutes] [history directory]. The
+ * server only listens on localhost, on port 7777 by default. Games idle for 30 minutes, or beyond the first 100,000,
+ * are moved out of memory into the spill directory (hangman-sessions in the temp directory by default). Finished games
+ * are recorded in a GameHistory (hangman-history in the temp directory by default), flushed every 10 seconds.
+ * Games can be watched live on the next port up, see SpectatorServer.
+ */
+public final class HangmanServer implements Closeable {
+    public static final int DEFAULT_PORT = 7777;
+    private final HangmanEngine engine;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread acceptor;
+
+    /**
+     * Starts listening on localhost.
+     * @param engine the games to host.
+     * @param port   the port to listen on, 0 to pick any free port.
+     * @throws IOException
+     */
+    public HangmanServer(HangmanEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofVirtual().name("hangman-server-acceptor").start(this::acceptLoop);
+    }
+
+    public int getPort() { return serverSocket.getLocalPort(); }
+
+    public HangmanEngine getEngine() { return engine; }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                //The server socket was closed, or accepting this one connection failed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader input = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+             Writer output = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII))) {
+            connection.setTcpNoDelay(true);
+            Connection state = new Connection();
+            String line;
+            while ((line = input.readLine()) != null) {
+                String response = handle(line, state);
+                output.write(response);
+                output.write('\n');
+                output.flush();
+                if (response.equals("BYE")) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            //The player disconnected
+        } catch (IOException e) {
+            //Nothing to tell a player whose connection broke
+        }
+    }
+
+    /**
+     * What the server remembers about a connection between requests.
+     */
+    private static class Connection {
+        private String player;
+    }
+
+    /**
+     * Runs one request, on a connection of its own.
+     * @param line a request in the protocol described above.
+     * @return the response line, without a line break.
+     */
+    String handle(String line) {
+        return handle(line, new Connection());
+    }
+
+    private String handle(String line, Connection connection) {
+        String[] words = line.trim().split(" +");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW":
+                    HangmanEngine.Mode mode = words.length > 1
+                            ? HangmanEngine.Mode.valueOf(words[1].toUpperCase()) : HangmanEngine.Mode.NORMAL;
+                    DifficultyIndex.Level level = words.length > 2
+                            ? DifficultyIndex.Level.valueOf(words[2].toUpperCase()) : DifficultyIndex.Level.ANY;
+                    return describe(started(engine.newGame(mode, level), connection));
+                case "NEXT":
+                    long seed = Long.parseLong(words[1]);
+                    long cursor = Long.parseLong(words[2]);
+                    mode = words.length > 3
+                            ? HangmanEngine.Mode.valueOf(words[3].toUpperCase()) : HangmanEngine.Mode.NORMAL;
+                    level = words.length > 4
+                            ? DifficultyIndex.Level.valueOf(words[4].toUpperCase()) : DifficultyIndex.Level.ANY;
+                    WordScheduler scheduler = new WordScheduler(engine.wordCount(level), seed, cursor);
+                    return describe(started(engine.newGame(mode, level, scheduler), connection));
+                case "DAILY":
+                    mode = words.length > 1
+                            ? HangmanEngine.Mode.valueOf(words[1].toUpperCase()) : HangmanEngine.Mode.NORMAL;
+                    return describe(started(engine.newDailyGame(mode, LocalDate.now(ZoneOffset.UTC)), connection));
+                case "GUESS":
+                    if (words.length < 3 || words[2].length() != 1) {
+                        return "ERR usage: GUESS id letter";
+                    }
+                    long id = Long.parseLong(words[1]);
+                    engine.guess(id, words[2].charAt(0));
+                    return describe(id);
+                case "STATE":
+                    return describe(Long.parseLong(words[1]));
+                case "SAVE":
+                    return "SAVED " + Base64.getEncoder().encodeToString(engine.save(Long.parseLong(words[1])));
+                case "LOAD":
+                    return describe(engine.load(Base64.getDecoder().decode(words[1])));
+                case "END":
+                    engine.remove(Long.parseLong(words[1]));
+                    return "ENDED " + words[1];
+                case "PLAYER":
+                    connection.player = words[1];
+                    return "PLAYER " + words[1];
+                case "STATS":
+                    return stats(connection.player);
+                case "LEADERS":
+                    int count = words.length > 1 ? Integer.parseInt(words[1]) : 10;
+                    StringBuilder leaders = new StringBuilder("LEADERS");
+                    for (LiveStats.Leaderboard.Entry entry : engine.getStats().snapshot(count).leaders()) {
+                        leaders.append(' ').append(entry.player()).append(':').append(entry.streak())
+                                .append(':').append(entry.misses());
+                    }
+                    return leaders.toString();
+                case "METRICS":
+                    return "METRICS " + Metrics.dumpToString().trim().replace(System.lineSeparator(), "; ");
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERR unknown command " + words[0];
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return "ERR missing argument";
+        } catch (NoSuchElementException | IllegalArgumentException | IllegalStateException | IOException
+                 | UncheckedIOException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private long started(long id, Connection connection) {
+        if (connection.player != null) {
+            engine.setPlayer(id, connection.player);
+        }
+        return id;
+    }
+
+    private String stats(String player) {
+        LiveStats.Snapshot snapshot = engine.getStats().snapshot(0);
+        String stats = String.format("STATS games=%d won=%d lost=%d winRate=%.4f wrongGuessesPerGame=%.2f players=%d",
+                snapshot.games(), snapshot.won(), snapshot.lost(), snapshot.games() == 0 ? 0 : snapshot.winRate(),
+                snapshot.games() == 0 ? 0 : snapshot.wrongGuessesPerGame(), snapshot.players());
+        if (player != null) {
+            LiveStats.PlayerStats mine = engine.getStats().getPlayer(player);
+            if (mine == null) {
+                mine = new LiveStats.PlayerStats(0, 0, 0, 0);
+            }
+            stats += String.format(" player=%s games=%d wins=%d streak=%d bestStreak=%d", player, mine.games(),
+                    mine.wins(), mine.streak(), mine.bestStreak());
+        }
+        return stats;
+    }
+
+    private String describe(long id) {
+        return engine.read(id, session -> {
+            String word = session.getWord();
+            StringBuilder builder = new StringBuilder(48 + 2 * word.length());
+            builder.append("OK ").append(id).append(' ');
+            for (int i = 0; i < word.length(); i++) {
+                builder.append(session.isRevealed(i) ? word.charAt(i) : '_');
+            }
+            builder.append(' ').append(session.getRemainingGuesses()).append(' ');
+            builder.append(session.isWon() ? "WON" : session.isLost() ? "LOST" : "PLAYING").append(' ');
+            if (session.getGuessedLetters() == 0) {
+                builder.append('-');
+            }
+            for (char letter = 'A'; letter <= 'Z'; letter++) {
+                if (session.isGuessed(letter)) {
+                    builder.append(letter);
+                }
+            }
+            if (session.isOver()) {
+                builder.append(' ').append(word);
+            }
+            return builder.toString();
+        });
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path spillDirectory = args.length > 1 ? Paths.get(args[1])
+                : Paths.get(System.getProperty("java.io.tmpdir"), "hangman-sessions");
+        int maxInMemory = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        long idleMinutes = args.length > 3 ? Long.parseLong(args[3]) : 30;
+        Path historyDirectory = args.length > 4 ? Paths.get(args[4])
+                : Paths.get(System.getProperty("java.io.tmpdir"), "hangman-history");
+        SessionStore sessions = new SessionStore(spillDirectory, maxInMemory, idleMinutes * 60_000);
+        GameHistory history = GameHistory.open(historyDirectory);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                history.close();
+            } catch (IOException e) {
+                //Nothing more we can do, we are exiting anyway
+            }
+        }, "hangman-history-close"));
+        Dictionary dictionary = Dictionary.getDefault();
+        HangmanServer server = new HangmanServer(new HangmanEngine(dictionary, sessions, history), port);
+        SpectatorServer spectators = new SpectatorServer(server.getEngine(), server.getPort() + 1);
+        DictionaryWatcher watcher = DictionaryWatcher.watchDefault();
+        if (watcher != null) {
+            watcher.onReload(server.getEngine()::setDictionary);
+        }
+        Thread.ofVirtual().start(() -> DifficultyIndex.of(dictionary));  //Ready before the first game with a difficulty
+        Thread.ofVirtual().name("hangman-session-evictor").start(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sessions.evictIdle();
+                try {
+                    history.flush();
+                } catch (IOException e) {
+                    //Tried again next time
+                }
+            }
+        });
+        System.out.println("Hangman server listening on localhost:" + server.getPort() + ", spectators on "
+                + spectators.getPort());
+        server.acceptor.join();
+    }
+}
@@ -0,0 +1,50 @@
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads every image the game shows, once, and hands out the same Image after that.
+ * Images are decoded on a background thread, so asking for one never holds up the FX thread. An ImageView showing an
+ * image that isn't decoded yet just stays empty until it is.
+ */
+public final class ImageCache {
+    private static final Map<String, Image> images = new ConcurrentHashMap<>();
+
+    private ImageCache() {}
+
+    /**
+     * Gets an image, starting to load it the first time.
+     * @param name the image's file name, looked up on the class path.
+     * @return
+     */
+    public static Image get(String name) {
+        return images.computeIfAbsent(name, ImageCache::load);
+    }
+
+    private static Image load(String name) {
+        HangmanEvents.ImageLoad event = new HangmanEvents.ImageLoad();
+        event.begin();
+        long start = System.nanoTime();
+        Image image = new Image(name, true);
+        AtomicBoolean recorded = new AtomicBoolean();
+        Runnable loaded = () -> {
+            if (recorded.compareAndSet(false, true)) {
+                Metrics.IMAGE_LOAD_NANOS.recordSince(start);
+                event.name = name;
+                event.commit();
+            }
+        };
+        //Listen first and check after, so an image that finishes in between is still recorded, once
+        image.progressProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.doubleValue() >= 1) {
+                loaded.run();
+            }
+        });
+        if (image.getProgress() >= 1) {
+            loaded.run();
+        }
+        return image;
+    }
+}
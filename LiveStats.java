@@ -0,0 +1,309 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live totals of finished games for a server full of players: wins and losses, guesses, results per word, each
+ * player's win streak, and a leaderboard of the best streaks. Any number of threads can record games at once, and
+ * anyone can take a snapshot at any time without stopping them.
+ * <p>
+ * The totals are striped like a LongAdder, each thread adding to one of STRIPES stripes on its own cache line, so
+ * recording costs the same with 2 cores or 64. Unlike separate LongAdders they add up, though: each stripe has a
+ * version that is odd while a game is being added to it, and a snapshot rereads a stripe that changed under it, so
+ * every game is either all in a snapshot or not in it at all (games won + games lost is always games, and so on).
+ * Results per word and per player are separate counters, a snapshot can be a game or so ahead of or behind those.
+ * <p>
+ * Results per word are counted by word index, so they belong to one dictionary. When the dictionary changes they start
+ * again from 0 for the new one's words, and games reported with an index into any other dictionary aren't counted per
+ * word. The other totals carry on.
+ */
+public final class LiveStats {
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+    private static final int STRIPE_LONGS = 16;    //128 bytes, so two stripes never share a cache line
+    private static final int VERSION = 0;
+    private static final int WON = 1;
+    private static final int LOST = 2;
+    private static final int GUESSES = 3;
+    private static final int WRONG_GUESSES = 4;
+    private static final int COUNTERS = 5;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIPE_LONGS);
+    private volatile WordCounts wordCounts;
+    private final Map<String, Player> players = new ConcurrentHashMap<>();
+    private final Leaderboard leaderboard;
+
+    /**
+     * Results per word in one dictionary.
+     */
+    private record WordCounts(long dictionary, AtomicIntegerArray games, AtomicIntegerArray wins) {
+        WordCounts(Dictionary dictionary) {
+            this(dictionary.fingerprint(), new AtomicIntegerArray(dictionary.size()),
+                    new AtomicIntegerArray(dictionary.size()));
+        }
+    }
+
+    /**
+     * @param dictionary  the words results per word are counted for.
+     * @param leaderboard how many players the leaderboard has.
+     */
+    public LiveStats(Dictionary dictionary, int leaderboard) {
+        this.wordCounts = new WordCounts(dictionary);
+        this.leaderboard = new Leaderboard(leaderboard);
+    }
+
+    /**
+     * Counts results per word for another dictionary from now on, from 0. Nothing changes if it has the same words.
+     * @param dictionary
+     */
+    public synchronized void setDictionary(Dictionary dictionary) {
+        if (dictionary.fingerprint() != wordCounts.dictionary()) {
+            wordCounts = new WordCounts(dictionary);
+        }
+    }
+
+    /**
+     * Counts a finished game.
+     * @param player     who played it, null if nobody in particular.
+     * @param dictionary the fingerprint of the dictionary wordIndex is an index into.
+     * @param wordIndex  the index of the word in the dictionary, -1 if it isn't in it.
+     * @param session    a game that is over.
+     */
+    public void gameOver(String player, long dictionary, int wordIndex, GameSession session) {
+        boolean won = session.isWon();
+        addToStripe(won, session.getGuessCount(), session.getWrongGuesses());
+        WordCounts words = wordCounts;
+        if (wordIndex >= 0 && dictionary == words.dictionary() && wordIndex < words.games().length()) {
+            words.games().incrementAndGet(wordIndex);
+            if (won) {
+                words.wins().incrementAndGet(wordIndex);
+            }
+        }
+        if (player != null) {
+            Player stats = players.computeIfAbsent(player, Player::new);
+            Leaderboard.Entry best = stats.gameOver(won, session.getWrongGuesses());
+            if (best != null) {
+                leaderboard.offer(best);
+            }
+        }
+    }
+
+    private void addToStripe(boolean won, int guesses, int wrongGuesses) {
+        int stripe = (int) mix(Thread.currentThread().threadId()) & (STRIPES - 1);
+        while (true) {
+            int base = stripe * STRIPE_LONGS;
+            long version = stripes.get(base + VERSION);
+            if ((version & 1) == 0 && stripes.compareAndSet(base + VERSION, version, version + 1)) {
+                stripes.getAndAdd(base + (won ? WON : LOST), 1);
+                stripes.getAndAdd(base + GUESSES, guesses);
+                stripes.getAndAdd(base + WRONG_GUESSES, wrongGuesses);
+                stripes.set(base + VERSION, version + 2);
+                return;
+            }
+            stripe = (stripe + 1) & (STRIPES - 1);  //Another thread has it, try the next one like LongAdder would
+        }
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return x ^ (x >>> 33);
+    }
+
+    /**
+     * Adds up the totals, without stopping anyone recording games.
+     * @param leaders how many of the leaderboard's players to include.
+     * @return
+     */
+    public Snapshot snapshot(int leaders) {
+        long[] totals = new long[COUNTERS];
+        long[] stripe = new long[COUNTERS];
+        for (int i = 0; i < STRIPES; i++) {
+            int base = i * STRIPE_LONGS;
+            while (true) {
+                long version = stripes.get(base + VERSION);
+                for (int counter = 1; counter < COUNTERS; counter++) {
+                    stripe[counter] = stripes.get(base + counter);
+                }
+                if ((version & 1) == 0 && stripes.get(base + VERSION) == version) {
+                    break;
+                }
+                Thread.onSpinWait();
+            }
+            for (int counter = 1; counter < COUNTERS; counter++) {
+                totals[counter] += stripe[counter];
+            }
+        }
+        return new Snapshot(totals[WON], totals[LOST], totals[GUESSES], totals[WRONG_GUESSES], players.size(),
+                leaderboard.top(leaders));
+    }
+
+    /**
+     * @return the fingerprint of the dictionary results per word are counted for.
+     */
+    public long getDictionary() { return wordCounts.dictionary(); }
+
+    /**
+     * @param wordIndex an index into the dictionary getDictionary() is the fingerprint of.
+     * @return
+     */
+    public int getGamesForWord(int wordIndex) { return wordCounts.games().get(wordIndex); }
+
+    /**
+     * @return the fraction of games won with the word, or NaN if it wasn't played.
+     */
+    public double getWinRate(int wordIndex) {
+        WordCounts words = wordCounts;
+        return (double) words.wins().get(wordIndex) / words.games().get(wordIndex);
+    }
+
+    /**
+     * Gets a player's results.
+     * @param player
+     * @return null if they haven't finished a game.
+     */
+    public PlayerStats getPlayer(String player) {
+        Player stats = players.get(player);
+        return stats == null ? null : stats.get();
+    }
+
+    /**
+     * Totals at one moment. Every game counted is counted in all of them.
+     */
+    public record Snapshot(long won, long lost, long guesses, long wrongGuesses, int players,
+                           List<Leaderboard.Entry> leaders) {
+        public long games() { return won + lost; }
+
+        public double winRate() { return (double) won / games(); }
+
+        public double wrongGuessesPerGame() { return (double) wrongGuesses / games(); }
+    }
+
+    /**
+     * A player's results at one moment.
+     */
+    public record PlayerStats(long games, long wins, int streak, int bestStreak) {}
+
+    /**
+     * One player's results. A player only plays one game at a time, so the lock is never fought over.
+     */
+    private static class Player {
+        private final String name;
+        private long games;
+        private long wins;
+        private int streak;
+        private int streakMisses;
+        private int bestStreak;
+        private int bestStreakMisses;
+
+        Player(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the player's new leaderboard entry if the game made their best streak better, otherwise null.
+         */
+        synchronized Leaderboard.Entry gameOver(boolean won, int wrongGuesses) {
+            games++;
+            if (!won) {
+                streak = 0;
+                streakMisses = 0;
+                return null;
+            }
+            wins++;
+            streak++;
+            streakMisses += wrongGuesses;
+            if (streak > bestStreak || streak == bestStreak && streakMisses < bestStreakMisses) {
+                bestStreak = streak;
+                bestStreakMisses = streakMisses;
+                return new Leaderboard.Entry(name, bestStreak, bestStreakMisses);
+            }
+            return null;
+        }
+
+        synchronized PlayerStats get() {
+            return new PlayerStats(games, wins, streak, bestStreak);
+        }
+    }
+
+    /**
+     * The best few players by their longest win streak, ties going to fewer misses in the streak.
+     * Entries are kept in a ConcurrentSkipListSet, which is lock-free, so reading it never blocks recording. A streak
+     * that isn't good enough to get on a full board is turned away after one look at the last entry, which is what
+     * almost every game does, so offering costs next to nothing however busy the board is.
+     */
+    public static class Leaderboard {
+        /**
+         * A player's best streak.
+         */
+        public record Entry(String player, int streak, int misses) {}
+
+        private static final Comparator<Entry> BEST_FIRST = Comparator.comparingInt(Entry::streak).reversed()
+                .thenComparingInt(Entry::misses).thenComparing(Entry::player);
+
+        private final int size;
+        private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(BEST_FIRST);
+        private final AtomicInteger entryCount = new AtomicInteger();  //entries.size() is O(n)
+        private final Map<String, Entry> byPlayer = new ConcurrentHashMap<>();
+
+        Leaderboard(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Puts a player's best streak on the board, in place of their last one, if it's good enough.
+         * @param entry a better entry than the player had before.
+         */
+        void offer(Entry entry) {
+            if (size == 0 || entryCount.get() >= size && !betterThanLast(entry)) {
+                return;
+            }
+            byPlayer.compute(entry.player(), (player, old) -> {   //One update per player at a time
+                if (old != null && BEST_FIRST.compare(old, entry) <= 0) {
+                    return old;
+                }
+                if (old != null && entries.remove(old)) {
+                    entryCount.decrementAndGet();
+                }
+                if (entries.add(entry)) {
+                    entryCount.incrementAndGet();
+                }
+                return entry;
+            });
+            //Takes one off the count before polling, so two threads that both see one too many don't both poll
+            while (entryCount.getAndUpdate(count -> count > size ? count - 1 : count) > size) {
+                Entry last = entries.pollLast();
+                if (last == null) {
+                    entryCount.incrementAndGet();   //Emptied by a replace whose count hasn't caught up, give it back
+                    break;
+                }
+                byPlayer.remove(last.player(), last);
+            }
+        }
+
+        private boolean betterThanLast(Entry entry) {
+            Iterator<Entry> worstFirst = entries.descendingIterator();  //Doesn't throw if the board was just emptied
+            return !worstFirst.hasNext() || BEST_FIRST.compare(entry, worstFirst.next()) < 0;
+        }
+
+        /**
+         * @param count
+         * @return up to count entries, best first.
+         */
+        public List<Entry> top(int count) {
+            List<Entry> top = new ArrayList<>(Math.min(count, size));
+            for (Entry entry : entries) {
+                if (top.size() == count) {
+                    break;
+                }
+                top.add(entry);
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Finds out how much a HangmanServer can take. Every simulated player is a virtual thread with its own connection,
+ * playing whole games one after the other: NEW, then GUESS until the game is over, waiting the think time before each
+ * guess. Every SAVE_EVERY games a player saves the game after its third guess, loads the save as a new game, ends the
+ * old one and finishes the game it loaded, like saving and loading in the window does.
+ * <p>
+ * Each response is checked against the rules of the window's game: a right guess shows the letter and costs nothing,
+ * a wrong one costs a guess, the game is won when the whole word shows and lost when no guesses are left, and a
+ * loaded game is exactly the game that was saved. Responses that break a rule are counted as errors.
+ * <p>
+ * The latency of each kind of request is recorded in a Histogram from the moment it's sent to the moment its response
+ * is read. At the end the p50, p99, p999 and max of each are printed, with the games finished per second over the whole
+ * run and in its best second.
+ * <p>
+ * Run with: java LoadTest [players] [seconds] [think ms] [strategy] [port]. By default 1,000 players play for 30
+ * seconds without thinking, with the frequency strategy, against a server started in this JVM. Given a port, they play
+ * against the server already listening on it, which has to have the same words.txt.
+ */
+public class LoadTest {
+    private static final int SAVE_EVERY = 10;
+
+    private final int port;
+    private final long thinkMillis;
+    private final Supplier<GuessStrategy> strategies;
+    private final Histogram newNanos = new Histogram();
+    private final Histogram guessNanos = new Histogram();
+    private final Histogram saveNanos = new Histogram();
+    private final Histogram loadNanos = new Histogram();
+    private final AtomicLong gamesFinished = new AtomicLong();
+    private final AtomicLong gamesWon = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean running = true;
+
+    public LoadTest(int port, long thinkMillis, Supplier<GuessStrategy> strategies) {
+        this.port = port;
+        this.thinkMillis = thinkMillis;
+        this.strategies = strategies;
+    }
+
+    /**
+     * What the server said a game looks like.
+     */
+    private static class Game {
+        final long id;
+        final String pattern;
+        final int remaining;
+        final String status;
+
+        Game(String response) throws IOException {
+            String[] words = response.split(" ");
+            if (words.length < 6 || !words[0].equals("OK")) {
+                throw new IOException("Unexpected response: " + response);
+            }
+            id = Long.parseLong(words[1]);
+            pattern = words[2];
+            remaining = Integer.parseInt(words[3]);
+            status = words[4];
+        }
+
+        boolean isOver() { return !status.equals("PLAYING"); }
+
+        /**
+         * Checks the rules of the window's game.
+         * @return true if the game follows from the one before it and a guess of the letter.
+         */
+        boolean follows(Game before, char letter) {
+            long positions = positions(letter);
+            for (int i = 0; i < pattern.length(); i++) {
+                char was = before.pattern.charAt(i);
+                if (was != '_' && was != pattern.charAt(i) || was == '_' && pattern.charAt(i) != '_'
+                        && pattern.charAt(i) != letter) {
+                    return false;
+                }
+            }
+            boolean won = pattern.indexOf('_') < 0;
+            int expectedRemaining = positions != 0 ? before.remaining : before.remaining - 1;
+            String expectedStatus = won ? "WON" : expectedRemaining == 0 ? "LOST" : "PLAYING";
+            return remaining == expectedRemaining && status.equals(expectedStatus)
+                    && pattern.length() == before.pattern.length();
+        }
+
+        long positions(char letter) {
+            long positions = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                if (pattern.charAt(i) == letter) {
+                    positions |= 1L << i;
+                }
+            }
+            return positions;
+        }
+    }
+
+    /**
+     * One player, playing until the test is over.
+     */
+    private void play() {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader input = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer output = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            GuessStrategy strategy = strategies.get();
+            //Players start at different points of SAVE_EVERY so they don't all save at once
+            for (long played = ThreadLocalRandom.current().nextInt(SAVE_EVERY); running; played++) {
+                Game game = new Game(request(input, output, "NEW", newNanos));
+                strategy.newGame(game.pattern.length());
+                int guesses = 0;
+                while (!game.isOver() && running) {
+                    if (played % SAVE_EVERY == 0 && guesses == 3) {
+                        game = saveAndLoad(input, output, game);
+                    }
+                    think();
+                    char letter = strategy.nextGuess();
+                    Game after = new Game(request(input, output, "GUESS " + game.id + " " + letter, guessNanos));
+                    guesses++;
+                    if (!after.follows(game, letter)) {
+                        errors.incrementAndGet();
+                    }
+                    strategy.guessed(letter, after.positions(letter));
+                    game = after;
+                }
+                if (game.isOver()) {
+                    gamesFinished.incrementAndGet();
+                    if (game.status.equals("WON")) {
+                        gamesWon.incrementAndGet();
+                    }
+                }
+                request(input, output, "END " + game.id, null);
+            }
+            request(input, output, "QUIT", null);
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                errors.incrementAndGet();
+                System.err.println("Player stopped: " + e);
+            }
+        }
+    }
+
+    private Game saveAndLoad(BufferedReader input, Writer output, Game game) throws IOException {
+        String saved = request(input, output, "SAVE " + game.id, saveNanos);
+        if (!saved.startsWith("SAVED ")) {
+            throw new IOException("Unexpected response: " + saved);
+        }
+        Game loaded = new Game(request(input, output, "LOAD " + saved.substring(6), loadNanos));
+        if (!loaded.pattern.equals(game.pattern) || loaded.remaining != game.remaining
+                || !loaded.status.equals(game.status)) {
+            errors.incrementAndGet();
+        }
+        request(input, output, "END " + game.id, null);
+        return loaded;
+    }
+
+    private void think() {
+        if (thinkMillis > 0) {
+            try {   //Up to twice the think time, so players don't all guess at once
+                Thread.sleep(ThreadLocalRandom.current().nextLong(2 * thinkMillis + 1));
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    private static String request(BufferedReader input, Writer output, String line, Histogram latency)
+            throws IOException {
+        long start = System.nanoTime();
+        output.write(line);
+        output.write('\n');
+        output.flush();
+        String response = input.readLine();
+        if (latency != null) {
+            latency.recordSince(start);
+        }
+        if (response == null) {
+            throw new IOException("The server hung up");
+        }
+        return response;
+    }
+
+    /**
+     * Runs the players for a while and prints the results.
+     * @param players
+     * @param seconds
+     * @throws InterruptedException
+     */
+    public void run(int players, int seconds) throws InterruptedException {
+        List<Long> perSecond = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                executor.execute(this::play);
+            }
+            long last = 0;
+            for (int second = 0; second < seconds; second++) {
+                Thread.sleep(1000);
+                long finished = gamesFinished.get();
+                perSecond.add(finished - last);
+                last = finished;
+            }
+            running = false;
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%,d players for %d s: %,d games (%.1f%% won), %,d errors%n", players, seconds,
+                gamesFinished.get(), 100.0 * gamesWon.get() / Math.max(1, gamesFinished.get()), errors.get());
+        System.out.printf("Games/s: %,.0f on average, %,d in the best second%n", gamesFinished.get() / elapsed,
+                perSecond.stream().mapToLong(Long::longValue).max().orElse(0));
+        System.out.println("Request   Count          p50       p99      p999       max  (us)");
+        print("NEW", newNanos);
+        print("GUESS", guessNanos);
+        print("SAVE", saveNanos);
+        print("LOAD", loadNanos);
+    }
+
+    private static void print(String name, Histogram latency) {
+        System.out.printf("%-7s %,9d %10.1f %9.1f %9.1f %9.1f%n", name, latency.getCount(),
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long thinkMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String strategy = args.length > 3 ? args[3] : "frequency";
+        Dictionary dictionary = Dictionary.getDefault();
+        Supplier<GuessStrategy> strategies = GuessStrategy.named(strategy, dictionary);
+        if (args.length > 4) {
+            new LoadTest(Integer.parseInt(args[4]), thinkMillis, strategies).run(players, seconds);
+            return;
+        }
+        try (HangmanServer server = new HangmanServer(new HangmanEngine(dictionary, SessionStore.inMemory()), 0)) {
+            new LoadTest(server.getPort(), thinkMillis, strategies).run(players, seconds);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Frames of an append-only log, as written by GuessJournal and GameHistory: an int length, an int CRC32 and that many
+ * bytes of records. A frame that is cut short or fails its checksum ends the log, that is where the crash happened.
+ */
+final class LogFrames {
+    static final int HEADER_BYTES = 8;
+
+    private LogFrames() {}
+
+    interface Reader {
+        void read(ByteBuffer records) throws IOException;
+    }
+
+    /**
+     * Writes the records left in a buffer as one frame at the channel's position.
+     */
+    static void write(FileChannel channel, ByteBuffer records) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(records.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(records.remaining()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] frame = {header, records};
+        do {
+            channel.write(frame);
+        } while (header.hasRemaining() || records.hasRemaining());
+    }
+
+    /**
+     * Hands the records of every good frame in the channel, from the start, to a reader.
+     * @return the position just after the last good frame.
+     */
+    static long read(FileChannel channel, Reader reader) throws IOException {
+        ByteBuffer file = ByteBuffer.allocate((int) channel.size());
+        while (file.hasRemaining() && channel.read(file, file.position()) >= 0) {
+            //Keep reading until the whole file is in memory
+        }
+        file.flip();
+        while (file.remaining() >= HEADER_BYTES) {
+            int start = file.position();
+            int length = file.getInt();
+            int expected = file.getInt();
+            if (length < 0 || length > file.remaining()) {
+                return start;
+            }
+            ByteBuffer records = file.slice();
+            records.limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(records.duplicate());
+            if ((int) crc.getValue() != expected) {
+                return start;
+            }
+            reader.read(records);
+            file.position(file.position() + length);
+        }
+        return file.position();
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Picks words straight out of a word list file, one word per line, however big the file is.
+ * The file is memory mapped and nothing about it is kept on the heap, so a list of millions of words costs the same
+ * memory as a list of ten, and opening it doesn't read it.
+ * <p>
+ * A random word is found by jumping to a random byte and taking the line it lands in. Long lines have more bytes to
+ * land on, so a line is only kept with a probability of 2 over its length in bytes (including the line break), which
+ * makes every line equally likely. That takes a handful of jumps on average and never reads the whole file.
+ * Samples with a filter do read the whole file once, keeping a reservoir of count words.
+ * <p>
+ * Lines are trimmed and upper-cased like Dictionary.of does, lines that still aren't a valid word (or are over 256
+ * bytes) are skipped. Unlike a Dictionary, a word that is in the file twice is twice as likely to be picked.
+ */
+public final class MappedWordSource implements WordSource {
+    private static final int SEGMENT_BITS = 30;  //Map the file 1 GB at a time, a MappedByteBuffer can't go past 2 GB
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final int MAX_LINE_BYTES = 256;
+    private static final int MAX_JUMPS = 1_000_000;
+
+    private final Path path;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final long positions; //Bytes to land on, plus one for the last line's missing line break if it has none
+
+    private MappedWordSource(Path path, MappedByteBuffer[] segments, long size) {
+        this.path = path;
+        this.segments = segments;
+        this.size = size;
+        this.positions = size > 0 && byteAt(size - 1) != '\n' ? size + 1 : size;
+    }
+
+    /**
+     * Maps a word list file.
+     * @param path
+     * @return
+     * @throws IOException if the file can't be read or doesn't have a single usable word.
+     */
+    public static MappedWordSource open(Path path) throws IOException {
+        MappedWordSource source;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                long length = Math.min(SEGMENT_MASK + 1, size - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            source = new MappedWordSource(path, segments, size);
+        }
+        if (!source.hasWord()) {
+            throw new IOException("No usable words in " + path);
+        }
+        return source;
+    }
+
+    public Path getPath() { return path; }
+
+    /**
+     * @return the size of the file in bytes.
+     */
+    public long getSize() { return size; }
+
+    @Override
+    public String randomWord(Random random) {
+        for (int jump = 0; jump < MAX_JUMPS; jump++) {
+            long position = random.nextLong(positions);
+            long start = position;
+            long startLimit = Math.max(0, position - MAX_LINE_BYTES);
+            while (start > startLimit && byteAt(start - 1) != '\n') {
+                start--;
+            }
+            long end = position;    //The line break, or the end of the file
+            long endLimit = Math.min(size, position + MAX_LINE_BYTES);
+            while (end < endLimit && byteAt(end) != '\n') {
+                end++;
+            }
+            boolean wholeLine = (start == 0 || byteAt(start - 1) == '\n') && (end == size || byteAt(end) == '\n');
+            if (!wholeLine || random.nextLong(end - start + 1) >= 2) {
+                continue;
+            }
+            String word = wordBetween(start, end);
+            if (word != null) {
+                return word;
+            }
+        }
+        throw new IllegalStateException("Could not find a usable word in " + path);
+    }
+
+    @Override
+    public List<String> sample(int count, Predicate<String> filter, Random random) {
+        Reservoir reservoir = new Reservoir(count, random);
+        long lineStart = 0;
+        for (int i = 0; i < segments.length; i++) {
+            MappedByteBuffer segment = segments[i];
+            long segmentStart = (long) i << SEGMENT_BITS;
+            for (int j = 0, limit = segment.limit(); j < limit; j++) {
+                if (segment.get(j) != '\n') {
+                    continue;
+                }
+                long end = segmentStart + j;
+                String word = wordBetween(lineStart, end);
+                lineStart = end + 1;
+                if (word != null && filter.test(word)) {
+                    reservoir.offer(word);
+                }
+            }
+        }
+        String last = wordBetween(lineStart, size);    //The last line, if it has no line break
+        if (last != null && filter.test(last)) {
+            reservoir.offer(last);
+        }
+        return reservoir.getWords();
+    }
+
+    private boolean hasWord() {
+        long lineStart = 0;
+        for (long position = 0; position <= size; position++) {
+            if (position == size || byteAt(position) == '\n') {
+                if (wordBetween(lineStart, position) != null) {
+                    return true;
+                }
+                lineStart = position + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the line from start up to end.
+     * @return the line as a word, or null if it isn't one.
+     */
+    private String wordBetween(long start, long end) {
+        if (end <= start || end - start > MAX_LINE_BYTES) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = byteAt(start + i);
+        }
+        String word = new String(bytes, StandardCharsets.UTF_8).trim().toUpperCase();
+        return Dictionary.isValidWord(word) ? word : null;
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the whole process, looked up by name.
+ * Counters are LongAdders, so bumping one from many threads at once stays cheap. Callers look a metric up once and
+ * keep it in a static field, the ones the game itself records are the constants below.
+ * <p>
+ * Everything can be written out in a plain text format with dump(), for dashboards to scrape. Starting the JVM with
+ * -Dhangman.metrics=path also dumps to that file every 10 seconds and when the JVM exits. The same events show up in
+ * Flight Recorder recordings too, see HangmanEvents.
+ */
+public final class Metrics {
+    private static final long START_NANOS = System.nanoTime();
+    private static final long DUMP_INTERVAL_MILLIS = 10_000;
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public static final LongAdder GAMES_STARTED = counter("games.started");
+    public static final LongAdder GAMES_WON = counter("games.won");
+    public static final LongAdder GAMES_LOST = counter("games.lost");
+    public static final LongAdder GUESSES = counter("guesses");
+    public static final LongAdder BYTES_SAVED = counter("bytes.saved");
+    public static final LongAdder BYTES_LOADED = counter("bytes.loaded");
+    public static final Histogram GUESS_NANOS = histogram("guess.nanos");
+    public static final Histogram DICTIONARY_LOAD_NANOS = histogram("dictionary.load.nanos");
+    public static final Histogram IMAGE_LOAD_NANOS = histogram("images.load.nanos");
+    public static final Histogram SAVE_NANOS = histogram("save.nanos");
+    public static final Histogram LOAD_NANOS = histogram("load.nanos");
+
+    static {
+        String dumpPath = System.getProperty("hangman.metrics");
+        if (dumpPath != null) {
+            Runnable dumper = () -> {
+                try {
+                    dump(Paths.get(dumpPath));
+                } catch (IOException e) {
+                    System.err.println("Could not write metrics to " + dumpPath + ": " + e.getMessage());
+                }
+            };
+            Thread.ofPlatform().name("hangman-metrics-dump").daemon().start(() -> {
+                while (true) {
+                    try {
+                        Thread.sleep(DUMP_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    dumper.run();
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(dumper, "hangman-metrics-final-dump"));
+        }
+    }
+
+    private Metrics() {}
+
+    /**
+     * Gets the counter with the name, making it the first time.
+     * @param name
+     * @return
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets the histogram with the name, making it the first time.
+     * @param name
+     * @return
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Counts a finished game as won or lost, does nothing if it isn't over.
+     * @param session
+     */
+    public static void gameOver(GameSession session) {
+        if (session.isWon()) {
+            GAMES_WON.increment();
+        }
+        else if (session.isLost()) {
+            GAMES_LOST.increment();
+        }
+    }
+
+    /**
+     * Writes every metric, one per line, sorted by name:
+     * <pre>
+     *   uptime seconds
+     *   counter name value perSecond
+     *   histogram name count=.. mean=..us p50=..us p90=..us p99=..us p999=..us max=..us
+     * </pre>
+     * Rates are averaged since the process started.
+     * @param writer
+     * @throws IOException
+     */
+    public static void dump(Writer writer) throws IOException {
+        double seconds = (System.nanoTime() - START_NANOS) / 1e9;
+        PrintWriter output = new PrintWriter(writer);
+        output.printf("uptime %.3f%n", seconds);
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            long value = entry.getValue().sum();
+            output.printf("counter %s %d %.2f%n", entry.getKey(), value, value / seconds);
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            output.println("histogram " + entry.getKey() + " " + entry.getValue());
+        }
+        output.flush();
+        if (output.checkError()) {
+            throw new IOException("Could not write metrics");
+        }
+    }
+
+    /**
+     * Writes every metric to a file, replacing it in one go so a dashboard never reads half a dump.
+     * @param path
+     * @throws IOException
+     */
+    public static void dump(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            dump(writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return every metric in the format dump() writes.
+     */
+    public static String dumpToString() {
+        StringWriter writer = new StringWriter();
+        try {
+            dump(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  //A StringWriter never fails
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Counts how often each pattern comes up, where a pattern is a long (like the positions of a letter in a word).
+ * It is an open addressing hash table on primitive arrays, so counting doesn't box or allocate, and it can be cleared
+ * and reused for the next round of counting.
+ */
+final class PatternCounts {
+    private long[] keys;
+    private int[] counts;   //0 means the slot is empty
+    private int size;
+
+    PatternCounts() {
+        keys = new long[64];
+        counts = new int[64];
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    int size() { return size; }
+
+    void increment(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) { //Keep the table at most half full so probes stay short
+                counts[slot] = 1;
+                grow();
+                return;
+            }
+        }
+        counts[slot]++;
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the pattern counted the most. Ties go to the pattern with the fewest bits set, then the smallest one, so
+     * the answer doesn't depend on the order things were counted in.
+     * @return the pattern, or 0 if nothing was counted.
+     */
+    long mostCommon() {
+        long best = 0;
+        int bestCount = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            int count = counts[slot];
+            if (count == 0) {
+                continue;
+            }
+            long key = keys[slot];
+            if (count > bestCount || count == bestCount && (Long.bitCount(key) < Long.bitCount(best)
+                    || Long.bitCount(key) == Long.bitCount(best) && Long.compareUnsigned(key, best) < 0)) {
+                best = key;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
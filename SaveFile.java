@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes .hng save files.
+ * A save file holds any number of games:
+ * <pre>
+ *   int    magic "HNG" followed by 0x1A
+ *   short  format version
+ *   int    number of games
+ *   per game:
+ *     byte   word length, then the word as ASCII letters
+ *     int    guessed letters mask, bit 0 being A
+ *     byte   guesses allowed, unsigned
+ *     byte   remaining guesses, unsigned
+ *   int    CRC32 of everything before it
+ * </pre>
+ * Files written by older versions of the game, which were plain text, can still be loaded.
+ */
+public final class SaveFile {
+    static final int MAGIC = 0x484E471A;
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4;
+
+    private SaveFile() {}
+
+    public static void save(Path path, GameSession session) throws IOException {
+        saveAll(path, Collections.singletonList(session));
+    }
+
+    /**
+     * Loads a file that holds a single game.
+     * @param path
+     * @return
+     * @throws IOException if the file can't be read, is corrupt, or doesn't hold exactly one game.
+     */
+    public static GameSession load(Path path) throws IOException {
+        List<GameSession> sessions = loadAll(path);
+        if (sessions.size() != 1) {
+            throw new IOException(path + " holds " + sessions.size() + " games, expected 1");
+        }
+        return sessions.get(0);
+    }
+
+    /**
+     * Writes all the games to one file. The file is written next to the target and then moved over it, so a failed
+     * save never leaves half a file behind.
+     * @param path
+     * @param sessions
+     * @throws IOException
+     */
+    public static void saveAll(Path path, List<GameSession> sessions) throws IOException {
+        HangmanEvents.Save event = new HangmanEvents.Save();
+        event.begin();
+        long start = System.nanoTime();
+        ByteBuffer buffer = encode(sessions);
+        int bytes = buffer.remaining();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Metrics.SAVE_NANOS.recordSince(start);
+        Metrics.BYTES_SAVED.add(bytes);
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.games = sessions.size();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads every game in a file by memory mapping it.
+     * @param path
+     * @return
+     * @throws IOException if the file can't be read or is corrupt.
+     */
+    public static List<GameSession> loadAll(Path path) throws IOException {
+        HangmanEvents.Load event = new HangmanEvents.Load();
+        event.begin();
+        long start = System.nanoTime();
+        List<GameSession> sessions;
+        long bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            bytes = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            sessions = decode(buffer);
+        }
+        Metrics.LOAD_NANOS.recordSince(start);
+        Metrics.BYTES_LOADED.add(bytes);
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.games = sessions.size();
+            event.bytes = bytes;
+            event.commit();
+        }
+        return sessions;
+    }
+
+    static ByteBuffer encode(List<GameSession> sessions) {
+        int size = HEADER_BYTES + 4;
+        for (GameSession session : sessions) {
+            size += 1 + session.getWord().length() + 4 + 1 + 1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(sessions.size());
+        for (GameSession session : sessions) {
+            buffer.put((byte) session.getWord().length());
+            buffer.put(session.getWord().getBytes(StandardCharsets.US_ASCII));
+            buffer.putInt(session.getGuessedLetters());
+            buffer.put((byte) session.getGuessesAllowed());
+            buffer.put((byte) session.getRemainingGuesses());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    static List<GameSession> decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4 || buffer.getInt(buffer.position()) != MAGIC) {
+            return Collections.singletonList(decodeText(buffer));
+        }
+        if (buffer.remaining() < HEADER_BYTES + 4) {
+            throw new IOException("Save file is truncated");
+        }
+        int start = buffer.position();
+        int end = buffer.limit() - 4;
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(end);
+        crc.update(checked);
+        if ((int) crc.getValue() != buffer.getInt(end)) {
+            throw new IOException("Save file is corrupt (checksum mismatch)");
+        }
+        buffer.position(start + 4);
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save file version " + version);
+        }
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IOException("Save file is corrupt (negative game count)");
+        }
+        List<GameSession> sessions = new ArrayList<>(Math.min(count, end - buffer.position()));
+        byte[] word = new byte[Dictionary.MAX_WORD_LENGTH];
+        try {
+            for (int i = 0; i < count; i++) {
+                int length = buffer.get() & 0xFF;
+                if (length > word.length) {
+                    throw new IOException("Save file is corrupt (word too long)");
+                }
+                buffer.get(word, 0, length);
+                int guessedLetters = buffer.getInt();
+                int guessesAllowed = buffer.get() & 0xFF;
+                int remainingGuesses = buffer.get() & 0xFF;
+                sessions.add(GameSession.restore(new String(word, 0, length, StandardCharsets.US_ASCII),
+                        guessesAllowed, guessedLetters, remainingGuesses));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Save file is corrupt", e);
+        }
+        if (buffer.position() != end) {
+            throw new IOException("Save file is corrupt (unexpected trailing data)");
+        }
+        return sessions;
+    }
+
+    /**
+     * Reads the text format older versions of the game saved: the word, the number of guessed positions followed by
+     * the letter at each of them, the number of wrong guesses, then the number of guessed letters followed by each
+     * letter's index in the alphabet.
+     */
+    private static GameSession decodeText(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        String[] tokens = new String(bytes, StandardCharsets.US_ASCII).trim().split("\\s+");
+        try {
+            int next = 0;
+            String word = tokens[next++];
+            int guessedLetters = 0;
+            int revealedCount = Integer.parseInt(tokens[next++]);
+            for (int i = 0; i < revealedCount; i++) {
+                guessedLetters |= 1 << GameSession.letterIndex(tokens[next++].charAt(0));
+            }
+            int wrongGuesses = Integer.parseInt(tokens[next++]);
+            int guessedCount = Integer.parseInt(tokens[next++]);
+            for (int i = 0; i < guessedCount; i++) {
+                guessedLetters |= 1 << GameSession.letterIndex((char) ('A' + Integer.parseInt(tokens[next++])));
+            }
+            return GameSession.restore(word, GameSession.DEFAULT_GUESSES_ALLOWED, guessedLetters,
+                    GameSession.DEFAULT_GUESSES_ALLOWED - wrongGuesses);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Not a hangman save file", e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Holds the games a HangmanEngine hosts, keeping only the recently used ones in memory.
+ * When there are more than maxInMemory games, or a game hasn't been touched for longer than the time to live, the
+ * least recently used games are written to the spill directory as .hng files (a few dozen bytes each) and dropped
+ * from memory. The next time an evicted game is used it is read back in, so callers never notice.
+ * <p>
+ * The store's own lock only guards the map of games in memory, and is never held for disk I/O or while waiting for a
+ * game. Each game has its own lock, held while it's used, written out or read back in, so a slow disk only holds up
+ * the games being written or read. Spilling picks its victims under the store's lock and marks them, writes them with
+ * only their own lock, and then takes them out of the map in a short step at the end. The store's lock is only ever
+ * taken while holding a game's lock, never the other way round.
+ * <p>
+ * Evicting an evil game turns it into a normal game with the word it had at the time, since only that word is saved.
+ */
+public class SessionStore {
+    private static final class Entry {
+        final ReentrantLock lock = new ReentrantLock(); //Not synchronized, virtual threads can wait for disk holding it
+        GameSession session;    //Null until read back in
+        long lastAccess;
+        boolean spilling;       //Picked to be spilled, guarded by the store's lock
+        boolean evicted;        //Spilled or removed, look the game up again
+
+        Entry(GameSession session, long lastAccess) {
+            this.session = session;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Path spillDirectory;
+    private final int maxInMemory;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<Long, Entry> inMemory = new LinkedHashMap<>(16, 0.75f, true); //Least recent first
+    private int spilling;   //Entries in inMemory on their way out
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    /**
+     * @param spillDirectory  where evicted games are written, it is created if needed. Games an earlier run spilled
+     *                        there are deleted.
+     * @param maxInMemory     how many games to keep in memory at most.
+     * @param timeToLiveMillis how long a game can go unused before it is evicted.
+     * @throws IOException if the spill directory can't be created or emptied.
+     */
+    public SessionStore(Path spillDirectory, int maxInMemory, long timeToLiveMillis) throws IOException {
+        if (maxInMemory <= 0 || timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+        this.spillDirectory = spillDirectory;
+        this.maxInMemory = maxInMemory;
+        this.timeToLiveNanos = timeToLiveMillis * 1_000_000;
+        if (spillDirectory != null) {
+            Files.createDirectories(spillDirectory);
+            deleteOldSpills();
+        }
+    }
+
+    /**
+     * Ids start again from 1 with every engine, so a game left by an earlier run would be handed to whoever asks for
+     * its id now.
+     */
+    private void deleteOldSpills() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "[0-9]*.hng")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Makes a store that keeps every game in memory and never evicts.
+     * @return
+     */
+    public static SessionStore inMemory() {
+        try {
+            return new SessionStore(null, Integer.MAX_VALUE, Long.MAX_VALUE / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //Can't happen without a spill directory
+        }
+    }
+
+    public void put(long id, GameSession session) {
+        List<Map.Entry<Long, Entry>> victims;
+        synchronized (this) {
+            inMemory.put(id, new Entry(session, System.nanoTime()));
+            victims = pickVictims();
+        }
+        spill(victims);
+    }
+
+    /**
+     * Runs an action on a game while no other thread can touch it, reading the game back in if it was evicted.
+     * @param id
+     * @param action
+     * @return what the action returned.
+     * @throws NoSuchElementException if there is no such game.
+     */
+    public <T> T apply(long id, Function<GameSession, T> action) {
+        while (true) {
+            Entry entry = lookup(id);
+            entry.lock.lock();
+            try {
+                if (!entry.evicted) {   //Otherwise it was evicted before we got to it, so look it up again
+                    entry.lastAccess = System.nanoTime();
+                    return action.apply(entry.session);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private Entry lookup(long id) {
+        synchronized (this) {
+            Entry entry = inMemory.get(id);
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        if (spillDirectory == null) {
+            throw new NoSuchElementException("No game " + id);
+        }
+        //Hold the new entry's lock from before anyone can see it until the game is read in, so others using the game
+        //wait for it (and only them)
+        Entry loading = new Entry(null, System.nanoTime());
+        loading.lock.lock();
+        List<Map.Entry<Long, Entry>> victims;
+        try {
+            synchronized (this) {
+                Entry entry = inMemory.get(id);
+                if (entry != null) {
+                    return entry;   //Someone else is reading it in, or just did
+                }
+                inMemory.put(id, loading);
+            }
+            GameSession session;
+            try {
+                session = unspill(id);
+            } catch (RuntimeException e) {
+                session = null;
+                forget(id, loading);
+                throw e;
+            }
+            if (session == null) {
+                forget(id, loading);
+                throw new NoSuchElementException("No game " + id);
+            }
+            loading.session = session;
+            synchronized (this) {
+                victims = pickVictims();
+            }
+        } finally {
+            loading.lock.unlock();
+        }
+        spill(victims);
+        return loading;
+    }
+
+    private void forget(long id, Entry entry) {
+        entry.evicted = true;
+        synchronized (this) {
+            inMemory.remove(id, entry);
+        }
+    }
+
+    /**
+     * Forgets a game, wherever it is.
+     * @param id
+     * @return true if there was such a game.
+     */
+    public boolean remove(long id) {
+        Entry entry;
+        synchronized (this) {
+            entry = inMemory.remove(id);
+        }
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                if (!entry.evicted) {
+                    entry.evicted = true;
+                    return true;
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+            //It was spilled while we waited for it, so it's on disk
+        }
+        if (spillDirectory == null) {
+            return false;
+        }
+        try {
+            if (Files.deleteIfExists(spillFile(id))) {
+                spilled.decrement();
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evicts every game that has gone unused for longer than the time to live. Games are also evicted whenever the
+     * store is used, this is for stores that sit idle.
+     * @return how many games were evicted.
+     */
+    public int evictIdle() {
+        long before = evictions.sum();
+        List<Map.Entry<Long, Entry>> victims;
+        synchronized (this) {
+            victims = pickVictims();
+        }
+        spill(victims);
+        return (int) (evictions.sum() - before);
+    }
+
+    /**
+     * Marks the least recently used games over the limits as spilling, so nobody else picks them too.
+     * @return the games to spill, least recently used first.
+     */
+    private List<Map.Entry<Long, Entry>> pickVictims() {
+        if (spillDirectory == null) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<Long, Entry>> victims = null;
+        long now = System.nanoTime();
+        for (Map.Entry<Long, Entry> eldest : inMemory.entrySet()) {
+            Entry entry = eldest.getValue();
+            if (entry.spilling) {
+                continue;
+            }
+            if (inMemory.size() - spilling <= maxInMemory && now - entry.lastAccess <= timeToLiveNanos) {
+                break;
+            }
+            if (victims == null) {
+                victims = new ArrayList<>();
+            }
+            entry.spilling = true;
+            spilling++;
+            victims.add(Map.entry(eldest.getKey(), entry));
+        }
+        return victims == null ? Collections.emptyList() : victims;
+    }
+
+    /**
+     * Writes the games to the spill directory and takes them out of memory. A game used since it was picked is
+     * written anyway, its lastAccess just keeps it around until the next time it's picked.
+     */
+    private void spill(List<Map.Entry<Long, Entry>> victims) {
+        for (int i = 0; i < victims.size(); i++) {
+            long id = victims.get(i).getKey();
+            Entry entry = victims.get(i).getValue();
+            boolean written = false;
+            entry.lock.lock();
+            try {
+                if (entry.evicted) {
+                    continue;   //Removed since it was picked
+                }
+                ByteBuffer saved = SaveFile.encode(Collections.singletonList(entry.session));
+                Files.write(spillFile(id), saved.array());
+                entry.evicted = true;
+                entry.session = null;
+                written = true;
+                evictions.increment();
+                spilled.increment();
+            } catch (IOException e) {
+                //Keep it in memory rather than lose it, and leave the rest until next time
+                unmark(victims.subList(i, victims.size()));
+                return;
+            } finally {
+                if (written || entry.evicted) {
+                    synchronized (this) {   //Gone before anyone waiting for it looks it up again
+                        inMemory.remove(id, entry);
+                        spilling--;
+                    }
+                }
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private synchronized void unmark(List<Map.Entry<Long, Entry>> victims) {
+        for (Map.Entry<Long, Entry> victim : victims) {
+            victim.getValue().spilling = false;
+            spilling--;
+        }
+    }
+
+    private GameSession unspill(long id) {
+        Path file = spillFile(id);
+        try {
+            List<GameSession> sessions = SaveFile.decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+            Files.delete(file);
+            spilled.decrement();
+            return sessions.get(0);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path spillFile(long id) {
+        return spillDirectory.resolve(id + ".hng");
+    }
+
+    public synchronized int getInMemoryCount() { return inMemory.size(); }
+
+    public long getSpilledCount() { return spilled.sum(); }
+
+    public long size() { return getInMemoryCount() + getSpilledCount(); }
+
+    /**
+     * Gets how many lookups found their game in memory.
+     * @return
+     */
+    public long getHits() { return hits.sum(); }
+
+    /**
+     * Gets how many lookups didn't find their game in memory, whether it was then read back from disk or not.
+     * @return
+     */
+    public long getMisses() { return misses.sum(); }
+
+    public long getEvictions() { return evictions.sum(); }
+
+    @Override
+    public String toString() {
+        return "SessionStore[inMemory=" + getInMemoryCount() + ", spilled=" + getSpilledCount() + ", hits="
+                + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+}
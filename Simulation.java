@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * Plays lots of games of hangman with a bot, spread across all cores, to see how hard the words are.
+ * Games follow the same rules as the JavaFX game: GameSession.DEFAULT_GUESSES_ALLOWED wrong guesses and the game is
+ * lost. Game i is played with word i modulo the dictionary size, so every word gets played the same number of times.
+ * <p>
+ * Run with: java Simulation [games] [strategy] [per word csv], where the strategy is solver (the default), frequency or
+ * random, and the optional csv gets every word's win rate.
+ */
+public class Simulation {
+    private static final int GAMES_PER_TASK = 4096;
+
+    /**
+     * What came out of a simulation. Counts are indexed by word, or by word length.
+     */
+    public static class Result {
+        private final Dictionary dictionary;
+        private final AtomicIntegerArray gamesByWord;
+        private final AtomicIntegerArray winsByWord;
+        private final AtomicIntegerArray wrongGuessesByWord;
+        private final long[] gamesByLength = new long[Dictionary.MAX_WORD_LENGTH + 1];
+        private final long[] winsByLength = new long[Dictionary.MAX_WORD_LENGTH + 1];
+        private long wrongGuesses;
+        private long nanos;
+
+        Result(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.gamesByWord = new AtomicIntegerArray(dictionary.size());
+            this.winsByWord = new AtomicIntegerArray(dictionary.size());
+            this.wrongGuessesByWord = new AtomicIntegerArray(dictionary.size());
+        }
+
+        synchronized void add(long[] games, long[] wins, long wrong) {
+            for (int i = 0; i < gamesByLength.length; i++) {
+                gamesByLength[i] += games[i];
+                winsByLength[i] += wins[i];
+            }
+            wrongGuesses += wrong;
+        }
+
+        public synchronized long getGames() {
+            long games = 0;
+            for (long count : gamesByLength) {
+                games += count;
+            }
+            return games;
+        }
+
+        public synchronized long getWins() {
+            long wins = 0;
+            for (long count : winsByLength) {
+                wins += count;
+            }
+            return wins;
+        }
+
+        public double getGamesPerSecond() { return getGames() * 1e9 / nanos; }
+
+        public synchronized double getAverageWrongGuesses() { return (double) wrongGuesses / getGames(); }
+
+        /**
+         * @return the fraction of games won with the word, or NaN if it was never played.
+         */
+        public double getWinRate(int wordIndex) {
+            return (double) winsByWord.get(wordIndex) / gamesByWord.get(wordIndex);
+        }
+
+        public int getGamesForWord(int wordIndex) { return gamesByWord.get(wordIndex); }
+
+        /**
+         * @return the average number of wrong guesses in games with the word, or NaN if it was never played.
+         */
+        public double getAverageWrongGuesses(int wordIndex) {
+            return (double) wrongGuessesByWord.get(wordIndex) / gamesByWord.get(wordIndex);
+        }
+
+        /**
+         * @return the fraction of games won with words of the length, or NaN if there were none.
+         */
+        public synchronized double getWinRateForLength(int length) {
+            return (double) winsByLength[length] / gamesByLength[length];
+        }
+
+        public synchronized long getGamesForLength(int length) { return gamesByLength[length]; }
+
+        public Dictionary getDictionary() { return dictionary; }
+    }
+
+    /**
+     * Plays games first up to last. Wins per word are counted straight into the shared result, per length totals are
+     * counted locally and added once at the end. Tasks are never serialized, ForkJoinTask just happens to be
+     * Serializable.
+     */
+    private static class Games extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Result result;
+        private final transient Supplier<GuessStrategy> strategies;
+        private final long first;
+        private final long last;
+
+        Games(Result result, Supplier<GuessStrategy> strategies, long first, long last) {
+            this.result = result;
+            this.strategies = strategies;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first > GAMES_PER_TASK) {    //Split in half until the pieces are small, idle threads steal them
+                long middle = (first + last) >>> 1;
+                invokeAll(new Games(result, strategies, first, middle), new Games(result, strategies, middle, last));
+                return;
+            }
+            Dictionary dictionary = result.dictionary;
+            long[] games = new long[Dictionary.MAX_WORD_LENGTH + 1];
+            long[] wins = new long[Dictionary.MAX_WORD_LENGTH + 1];
+            long wrongGuesses = 0;
+            GuessStrategy strategy = strategies.get();
+            for (long game = first; game < last; game++) {
+                int word = (int) (game % dictionary.size());
+                GameSession session = new GameSession(dictionary.word(word), GameSession.DEFAULT_GUESSES_ALLOWED);
+                play(session, strategy);
+                int length = session.getWord().length();
+                result.gamesByWord.incrementAndGet(word);
+                games[length]++;
+                if (session.isWon()) {
+                    result.winsByWord.incrementAndGet(word);
+                    wins[length]++;
+                }
+                result.wrongGuessesByWord.addAndGet(word, session.getWrongGuesses());
+                wrongGuesses += session.getWrongGuesses();
+            }
+            result.add(games, wins, wrongGuesses);
+        }
+    }
+
+    /**
+     * Lets the strategy guess until the game is over.
+     * @param session
+     * @param strategy
+     */
+    public static void play(GameSession session, GuessStrategy strategy) {
+        strategy.newGame(session.getWord().length());
+        while (!session.isOver()) {
+            char letter = strategy.nextGuess();
+            strategy.guessed(letter, session.guess(letter));
+        }
+    }
+
+    /**
+     * Plays games on a work stealing pool.
+     * @param dictionary  the words to play.
+     * @param games       how many games to play.
+     * @param strategies  makes the strategy each thread plays with.
+     * @param parallelism how many threads to use.
+     * @return
+     */
+    public static Result run(Dictionary dictionary, long games, Supplier<GuessStrategy> strategies, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Result result = new Result(dictionary);
+            long start = System.nanoTime();
+            pool.invoke(new Games(result, strategies, 0, games));
+            result.nanos = System.nanoTime() - start;
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String strategy = args.length > 1 ? args[1] : "solver";
+        Dictionary dictionary = Dictionary.getDefault();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Result result = run(dictionary, games, GuessStrategy.named(strategy, dictionary), threads);
+
+        System.out.printf("%,d games with the %s strategy on %d threads in %.2f s (%,.0f games/s)%n",
+                result.getGames(), strategy, threads, result.nanos / 1e9, result.getGamesPerSecond());
+        System.out.printf("Win rate %.2f%%, %.2f wrong guesses per game%n",
+                100.0 * result.getWins() / result.getGames(), result.getAverageWrongGuesses());
+        System.out.println("Length   Games      Win rate");
+        for (int length = 1; length <= Dictionary.MAX_WORD_LENGTH; length++) {
+            if (result.getGamesForLength(length) > 0) {
+                System.out.printf("%6d %,12d %8.2f%%%n", length, result.getGamesForLength(length),
+                        100 * result.getWinRateForLength(length));
+            }
+        }
+        List<Integer> hardest = new ArrayList<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            hardest.add(i);
+        }
+        hardest.sort((a, b) -> Double.compare(result.getWinRate(a), result.getWinRate(b)));
+        System.out.println("Hardest words:");
+        for (int i = 0; i < Math.min(10, hardest.size()); i++) {
+            int word = hardest.get(i);
+            System.out.printf("  %-30s %6.2f%%%n", dictionary.word(word), 100 * result.getWinRate(word));
+        }
+        if (args.length > 2) {
+            try (PrintWriter output = new PrintWriter(Files.newBufferedWriter(Paths.get(args[2])))) {
+                output.println("word,games,win_rate");
+                for (int i = 0; i < dictionary.size(); i++) {
+                    output.println(dictionary.word(i) + "," + result.getGamesForWord(i) + "," + result.getWinRate(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Works out which dictionary words are still possible in a game and which letter to guess next.
+ * The candidates are narrowed down after every guess from the previous candidates, rather than searching the whole
+ * dictionary again. A guess of a letter at some positions (none for a wrong guess) keeps exactly the words that have
+ * that letter at those positions and nowhere else. Filtering and counting letters are split across cores once there
+ * are enough candidates to make it worth it.
+ */
+public class Solver {
+    /**
+     * Letters from most to least common in English, used to guess when no dictionary word fits the game.
+     */
+    static final String LETTERS_BY_FREQUENCY = "ETAOINSHRDLCUMWFGYPBVKJXQZ";
+    private static final int PARALLEL_THRESHOLD = 20_000;
+    private final Dictionary dictionary;
+    private int[] candidates;
+    private int guessedLetters;
+
+    /**
+     * Starts a solver for a game where nothing has been guessed yet.
+     * @param dictionary the words the game's word could be.
+     * @param wordLength the length of the game's word.
+     */
+    public Solver(Dictionary dictionary, int wordLength) {
+        this.dictionary = dictionary;
+        int first = dictionary.firstWithLength(wordLength);
+        this.candidates = IntStream.range(first, first + dictionary.countWithLength(wordLength, wordLength)).toArray();
+    }
+
+    /**
+     * Starts a solver for a game in progress, using only what the player can see: the revealed letters and the wrong
+     * guesses.
+     * @param dictionary
+     * @param session
+     * @return
+     */
+    public static Solver forSession(Dictionary dictionary, GameSession session) {
+        Solver solver = new Solver(dictionary, session.getWord().length());
+        for (char letter = 'A'; letter <= 'Z'; letter++) {
+            if (session.isGuessed(letter)) {
+                solver.update(letter, session.getPositions(letter));
+            }
+        }
+        return solver;
+    }
+
+    /**
+     * Narrows the candidates down after a guess.
+     * @param letter    the letter guessed.
+     * @param positions where the letter was revealed in the word, 0 if the guess was wrong.
+     */
+    public void update(char letter, long positions) {
+        char upper = Character.toUpperCase(letter);
+        guessedLetters |= 1 << GameSession.letterIndex(upper);
+        IntStream stream = Arrays.stream(candidates);
+        if (candidates.length >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        candidates = stream.filter(i -> dictionary.positions(i, upper) == positions).toArray();
+    }
+
+    public int getCandidateCount() { return candidates.length; }
+
+    public String getCandidate(int i) { return dictionary.word(candidates[i]); }
+
+    /**
+     * Counts how many candidates contain each letter that hasn't been guessed yet.
+     * @return the count for each letter, index 0 being A.
+     */
+    public int[] letterCounts() {
+        IntStream stream = Arrays.stream(candidates);
+        if (candidates.length >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        int unguessed = ~guessedLetters;
+        return stream.collect(() -> new int[26], (counts, i) -> {
+            for (int mask = dictionary.letterMask(i) & unguessed; mask != 0; mask &= mask - 1) {
+                counts[Integer.numberOfTrailingZeros(mask)]++;
+            }
+        }, (counts, other) -> {
+            for (int j = 0; j < 26; j++) {
+                counts[j] += other[j];
+            }
+        });
+    }
+
+    /**
+     * Picks the letter the most candidates contain, which is the guess most likely to be right.
+     * If no candidates are left, falls back to the most common English letter not guessed yet.
+     * @return the letter to guess, or 0 if every letter has been guessed.
+     */
+    public char bestGuess() {
+        int[] counts = letterCounts();
+        int best = -1;
+        for (int i = 0; i < 26; i++) {
+            if (counts[i] > 0 && (best < 0 || counts[i] > counts[best])) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            return (char) ('A' + best);
+        }
+        for (int i = 0; i < LETTERS_BY_FREQUENCY.length(); i++) {
+            char letter = LETTERS_BY_FREQUENCY.charAt(i);
+            if ((guessedLetters & (1 << (letter - 'A'))) == 0) {
+                return letter;
+            }
+        }
+        return 0;
+    }
+}
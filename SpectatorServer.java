@@ -0,0 +1,541 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Lets anyone watch games hosted by a HangmanEngine live, thousands of watchers per game, from one thread.
+ * A watcher connects, sends "WATCH id" and a line break, and gets the game as it stands in a keyframe, followed by a
+ * small frame for every guess. Each frame is encoded once per guess and the same bytes are written to every watcher.
+ * <pre>
+ *   'K' length remaining guessedLetters(int) pattern   the whole game, the pattern having _ for letters not guessed
+ *   'R' letter positions(long)                         a right guess, positions having bit 0 for the first letter
+ *   'M' letter remaining                               a wrong guess, and the guesses left after it
+ *   'E' 'W'|'L' length word                            the game was won or lost, the connection is closed after it
+ *   'X'                                                there is no such game, the connection is closed after it
+ * </pre>
+ * Every field is a byte unless it says otherwise, ints and longs are big-endian. K and E frames are the whole game,
+ * R and M frames are what one guess changed, so after its keyframe a watcher has to get every one of its game's R and
+ * M frames to show the right board. That's why frames come from a GameEvents listener, called by the guessing thread
+ * with the game held, rather than a subscriber, which can miss events: the only watchers that skip frames are those
+ * too slow to keep up, and they get a new keyframe for them.
+ * <p>
+ * Nothing waits for a watcher. Frames are written as far as a watcher's socket takes them and the rest are queued.
+ * A watcher with MAX_QUEUED_FRAMES frames queued is too slow to keep up: its queue is thrown away and it gets a fresh
+ * keyframe once its socket catches up, skipping the guesses in between. How long a guess takes to reach every watcher
+ * of its game is recorded in the spectator.fanout.nanos metric, how long until a watcher's socket took it in
+ * spectator.delivery.nanos.
+ * <p>
+ * The selector thread never waits for a game either. Keyframes need the game, which may be busy or spilled to disk, so
+ * they're built on a virtual thread, one at a time per game however many watchers want one, and handed back like
+ * frames. Every frame has the game's number of guesses as of it, and a watcher skips frames that aren't newer than its
+ * keyframe: the frames published while the keyframe was being built are already in it.
+ * <p>
+ * To watch a game from a terminal: java SpectatorServer [port] id.
+ */
+public final class SpectatorServer implements Closeable {
+    public static final int MAX_QUEUED_FRAMES = 8;
+    private static final int MAX_REQUEST_BYTES = 64;
+    private static final Histogram fanoutNanos = Metrics.histogram("spectator.fanout.nanos");
+    private static final Histogram deliveryNanos = Metrics.histogram("spectator.delivery.nanos");
+
+    private final HangmanEngine engine;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Queue<Frame> published = new ConcurrentLinkedQueue<>();
+    private final Queue<Frame> keyframes = new ConcurrentLinkedQueue<>();      //Built, to be handed out
+    //Only touched by the selector thread
+    private final Map<Long, List<Watcher>> watchersByGame = new HashMap<>();
+    private final Map<Long, List<Watcher>> keyframeBuilding = new HashMap<>(); //Who the one being built is for
+    private final Map<Long, List<Watcher>> keyframeWanted = new HashMap<>();   //Came after it started, get the next one
+    private final Thread selectorThread;
+    private final Consumer<GameEvents.Event> listener = this::onEvent;
+
+    /**
+     * A frame for every watcher of a game, and when its guess was made.
+     * @param sequence the game's number of guesses as of the frame, FINAL for the frame a watcher is closed after.
+     */
+    private record Frame(long game, int sequence, ByteBuffer bytes, long nanos, boolean last) {}
+
+    private static final int FINAL = Integer.MAX_VALUE;
+
+    /**
+     * Starts listening on localhost and following the engine's games.
+     * @param engine
+     * @param port   the port to listen on, 0 to pick any free port.
+     * @throws IOException
+     */
+    public SpectatorServer(HangmanEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        engine.getEvents().listen(listener);
+        this.selectorThread = Thread.ofPlatform().name("hangman-spectators").start(this::selectLoop);
+    }
+
+    public int getPort() { return serverChannel.socket().getLocalPort(); }
+
+    /**
+     * Encodes a guess's frame, on the guessing thread, and hands it to the selector thread to send.
+     */
+    private void onEvent(GameEvents.Event event) {
+        if (!selector.isOpen()) {
+            return;
+        }
+        ByteBuffer bytes;
+        int sequence = FINAL;
+        boolean last = false;
+        switch (event) {
+            case GameEvents.LetterRevealed revealed -> {
+                bytes = ByteBuffer.allocate(10).put((byte) 'R').put((byte) revealed.letter())
+                        .putLong(revealed.positions());
+                sequence = revealed.guesses();
+            }
+            case GameEvents.LifeLost lifeLost -> {
+                bytes = ByteBuffer.allocate(3).put((byte) 'M').put((byte) lifeLost.letter())
+                        .put((byte) lifeLost.remainingGuesses());
+                sequence = lifeLost.guesses();
+            }
+            case GameEvents.GameWon won -> {
+                bytes = endFrame(won.session(), 'W');
+                last = true;
+            }
+            case GameEvents.GameLost lost -> {
+                bytes = endFrame(lost.session(), 'L');
+                last = true;
+            }
+            case GameEvents.GuessMade guess -> {
+                return; //The frame is sent for what the guess did
+            }
+        }
+        published.add(new Frame(event.game(), sequence, bytes.flip(), System.nanoTime(), last));
+        selector.wakeup();
+    }
+
+    /**
+     * Builds a keyframe from the game as it is now, or an end frame if it's already over, on the calling thread.
+     */
+    private Frame keyframe(long game) {
+        try {
+            return engine.read(game, session -> {
+                if (session.isOver()) {
+                    return new Frame(game, FINAL, endFrame(session, session.isWon() ? 'W' : 'L').flip(),
+                            System.nanoTime(), true);
+                }
+                String word = session.getWord();
+                ByteBuffer bytes = ByteBuffer.allocate(7 + word.length()).put((byte) 'K')
+                        .put((byte) word.length()).put((byte) session.getRemainingGuesses())
+                        .putInt(session.getGuessedLetters());
+                for (int i = 0; i < word.length(); i++) {
+                    bytes.put((byte) (session.isRevealed(i) ? word.charAt(i) : '_'));
+                }
+                return new Frame(game, session.getGuessCount(), bytes.flip(), System.nanoTime(), false);
+            });
+        } catch (NoSuchElementException e) {
+            return noSuchGame(game);
+        }
+    }
+
+    private static Frame noSuchGame(long game) {
+        return new Frame(game, FINAL, ByteBuffer.wrap(new byte[] {'X'}), System.nanoTime(), true);
+    }
+
+    /**
+     * Gets a watcher a keyframe of its game. It's built after this, so it has every frame the watcher hasn't been
+     * sent.
+     */
+    private void requestKeyframe(Watcher watcher) {
+        List<Watcher> building = keyframeBuilding.get(watcher.game);
+        if (building != null) { //Could be from before the watcher's last frame, so wait for the next one
+            keyframeWanted.computeIfAbsent(watcher.game, id -> new ArrayList<>()).add(watcher);
+            return;
+        }
+        building = new ArrayList<>();
+        building.add(watcher);
+        keyframeBuilding.put(watcher.game, building);
+        buildKeyframe(watcher.game);
+    }
+
+    private void buildKeyframe(long game) {
+        Thread.ofVirtual().name("hangman-spectator-keyframe").start(() -> {
+            keyframes.add(keyframe(game));
+            selector.wakeup();
+        });
+    }
+
+    /**
+     * Hands every keyframe built since the last time to the watchers waiting for it, and starts the next one for the
+     * watchers that came since it was started.
+     */
+    private void handOutKeyframes() {
+        for (Frame keyframe; (keyframe = keyframes.poll()) != null; ) {
+            List<Watcher> watchers = keyframeBuilding.remove(keyframe.game());
+            List<Watcher> next = keyframeWanted.remove(keyframe.game());
+            if (next != null) {
+                keyframeBuilding.put(keyframe.game(), next);
+                buildKeyframe(keyframe.game());
+            }
+            if (watchers != null) {
+                for (Watcher watcher : watchers) {
+                    watcher.keyframe(keyframe);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer endFrame(GameSession session, char outcome) {
+        byte[] word = session.getWord().getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(3 + word.length).put((byte) 'E').put((byte) outcome).put((byte) word.length)
+                .put(word);
+    }
+
+    private void selectLoop() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                handOutKeyframes();
+                fanOut();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Watcher watcher = (Watcher) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            watcher.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            watcher.write();
+                        }
+                    } catch (IOException e) {
+                        watcher.close();    //The watcher went away
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            //The server was closed
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Watcher watcher = new Watcher(channel);
+                watcher.key = channel.register(selector, SelectionKey.OP_READ, watcher);
+            }
+        } catch (IOException e) {
+            if (channel != null) {  //Accepting this one watcher failed, the others carry on
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    //Nothing more we can do
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands every frame published since the last time to the watchers of its game.
+     */
+    private void fanOut() {
+        for (Frame frame; (frame = published.poll()) != null; ) {
+            List<Watcher> watchers = frame.last() ? watchersByGame.remove(frame.game())
+                    : watchersByGame.get(frame.game());
+            if (watchers == null) {
+                continue;
+            }
+            for (int i = watchers.size() - 1; i >= 0; i--) {   //Backwards, a watcher that hangs up removes itself
+                watchers.get(i).send(frame);
+            }
+            fanoutNanos.recordSince(frame.nanos());
+        }
+    }
+
+    /**
+     * One watcher's connection. Only touched by the selector thread.
+     */
+    private class Watcher {
+        private final SocketChannel channel;
+        private final ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        private SelectionKey key;
+        private ByteBuffer writing; //The frame at the head of the queue, as far as it has been written
+        private long game = -1;
+        private int shown = -1;     //Sequence of the last keyframe, frames up to it are already in it
+        private int missed = -1;    //Sequence of the last frame thrown away
+        private boolean resync;     //Fell behind, gets a keyframe instead of the frames it missed
+        private boolean awaitingKeyframe;   //Frames are queued, but not written until the keyframe comes
+        private boolean closing;    //Closed once everything queued is written
+        private boolean closed;
+
+        Watcher(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the WATCH request, and after it only notices the watcher hanging up.
+         */
+        void read() throws IOException {
+            if (game >= 0) {
+                request.clear();
+            }
+            if (channel.read(request) < 0) {
+                close();
+                return;
+            }
+            if (game >= 0) {
+                return;
+            }
+            String line = new String(request.array(), 0, request.position(), StandardCharsets.US_ASCII);
+            int end = line.indexOf('\n');
+            if (end < 0 && request.hasRemaining()) {
+                return; //Not all here yet
+            }
+            String[] words = (end < 0 ? line : line.substring(0, end)).trim().split(" +");
+            try {
+                if (words.length != 2 || !words[0].equalsIgnoreCase("WATCH")) {
+                    throw new NumberFormatException();
+                }
+                game = Long.parseLong(words[1]);
+            } catch (NumberFormatException e) {
+                noSuchGame();
+                return;
+            }
+            //Joins first, so the keyframe, built after, has at least what the frames it doesn't get have
+            watchersByGame.computeIfAbsent(game, id -> new ArrayList<>()).add(this);
+            awaitingKeyframe = true;
+            requestKeyframe(this);
+        }
+
+        private void noSuchGame() throws IOException {
+            queue.add(SpectatorServer.noSuchGame(game));
+            closing = true;
+            write();
+        }
+
+        /**
+         * Puts a keyframe at the front of the queue, and drops the queued frames it's newer than.
+         */
+        void keyframe(Frame keyframe) {
+            if (closed) {
+                return;
+            }
+            awaitingKeyframe = false;
+            Frame head = writing != null ? queue.pollFirst() : null;   //Half written, the rest has to go first
+            queue.removeIf(frame -> frame.sequence() <= keyframe.sequence());
+            if (keyframe.last()) {
+                closing = true;
+                queue.clear();
+            }
+            queue.addFirst(keyframe);
+            if (head != null) {
+                queue.addFirst(head);
+            }
+            shown = keyframe.sequence();
+            resync |= missed > shown;   //Frames after it were thrown away while it was being built
+            try {
+                write();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Queues a frame, writing it straight away if the socket takes it. A watcher that's too far behind has its
+         * queue thrown away, and gets a keyframe when it catches up.
+         */
+        void send(Frame frame) {
+            if (frame.sequence() <= shown) {
+                return; //Already in the keyframe
+            }
+            if (frame.last()) {
+                closing = true;
+            }
+            if (queue.size() >= MAX_QUEUED_FRAMES || resync && !frame.last()) {
+                Frame head = writing != null ? queue.pollFirst() : null;
+                for (Frame dropped : queue) {
+                    missed = Math.max(missed, dropped.sequence());
+                }
+                queue.clear();
+                if (head != null) {
+                    queue.add(head);    //Half written, the rest has to follow
+                }
+                resync = true;
+                if (!frame.last()) {
+                    missed = Math.max(missed, frame.sequence());
+                    return;
+                }
+            }
+            queue.add(frame);
+            try {
+                write();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Writes queued frames until the socket is full, then waits for it to be writable again.
+         */
+        void write() throws IOException {
+            while (true) {
+                if (queue.isEmpty() && resync && !closing && !awaitingKeyframe) {
+                    resync = false;
+                    awaitingKeyframe = true;
+                    requestKeyframe(this);
+                }
+                Frame frame = queue.peekFirst();
+                if (frame == null) {
+                    break;
+                }
+                if (awaitingKeyframe && writing == null) {
+                    key.interestOps(SelectionKey.OP_READ);  //Written when the keyframe comes
+                    return;
+                }
+                if (writing == null) {
+                    writing = frame.bytes().duplicate();
+                }
+                channel.write(writing);
+                if (writing.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                deliveryNanos.recordSince(frame.nanos());
+                queue.pollFirst();
+                writing = null;
+            }
+            if (closing) {
+                close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            closed = true;
+            List<Watcher> watchers = watchersByGame.get(game);
+            if (watchers != null) {
+                watchers.remove(this);
+                if (watchers.isEmpty()) {
+                    watchersByGame.remove(game);
+                }
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //Nothing more we can do, the watcher is gone anyway
+            }
+        }
+    }
+
+    /**
+     * Stops listening and hangs up on every watcher.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        engine.getEvents().stopListening(listener);
+        selector.close();
+        serverChannel.close();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (List<Watcher> watchers : watchersByGame.values()) {
+            for (Watcher watcher : watchers) {
+                watcher.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Watches a game and prints it after every guess.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[0]) : HangmanServer.DEFAULT_PORT + 1;
+        String game = args[args.length - 1];
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.write(ByteBuffer.wrap(("WATCH " + game + "\n").getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer input = ByteBuffer.allocate(4096);
+            char[] pattern = new char[0];
+            while (channel.read(input) >= 0) {
+                input.flip();
+                while (input.hasRemaining()) {
+                    input.mark();
+                    byte type = input.get();
+                    if (type == 'K' && input.remaining() >= 6 && input.remaining() >= 6 + input.get(input.position())) {
+                        pattern = new char[input.get()];
+                        int remaining = input.get();
+                        input.getInt();
+                        for (int i = 0; i < pattern.length; i++) {
+                            pattern[i] = (char) input.get();
+                        }
+                        System.out.println(new String(pattern) + "  " + remaining + " guesses left");
+                    }
+                    else if (type == 'R' && input.remaining() >= 9) {
+                        char letter = (char) input.get();
+                        for (long left = input.getLong(); left != 0; left &= left - 1) {
+                            pattern[Long.numberOfTrailingZeros(left)] = letter;
+                        }
+                        System.out.println(new String(pattern) + "  " + letter + " is in it");
+                    }
+                    else if (type == 'M' && input.remaining() >= 2) {
+                        char letter = (char) input.get();
+                        System.out.println(new String(pattern) + "  " + letter + " isn't, " + input.get()
+                                + " guesses left");
+                    }
+                    else if (type == 'E' && input.remaining() >= 2
+                            && input.remaining() >= 2 + input.get(input.position() + 1)) {
+                        boolean won = input.get() == 'W';
+                        byte[] word = new byte[input.get()];
+                        input.get(word);
+                        System.out.println(new String(word, StandardCharsets.US_ASCII) + (won ? "  won" : "  lost"));
+                    }
+                    else if (type == 'X') {
+                        System.out.println("No such game: " + game);
+                    }
+                    else {
+                        input.reset();  //Only part of the frame is here
+                        break;
+                    }
+                }
+                input.compact();
+            }
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
@@ -5,61 +6,90 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Screen;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.prefs.Preferences;
 
 public class WordChooser {
-    private String chosenWord;
-    private List<String> listOfWords;
+    private static final int EVIL_CANDIDATES = 100_000;
+    private static final Preferences preferences = Preferences.userNodeForPackage(WordChooser.class);
+    private GameSession session;
+    private WordSource wordSource;  //Only for -Dhangman.words, the default dictionary is got fresh every game
+    private long games;             //Times cleared for another game, so an evil game still being set up is dropped
+    private Dictionary dictionary;  //The game's word is from, null if it was loaded or isn't from a dictionary
+    private int wordIndex = -1;     //Of a normal game's word in dictionary
     private List<LetterLabel> letterLabels;
-    private int unguessedLetters;
+    private List<LetterLabel> labelPool; //Labels from earlier games, reused so a new game doesn't make new nodes
+    private HBox wordBox;
+    private Map<DifficultyIndex.Level, WordScheduler> schedulers = new EnumMap<>(DifficultyIndex.Level.class);
 
     public WordChooser() {
-        listOfWords = new ArrayList<>();
-        chosenWord = "";
+        session = null;
         letterLabels = new ArrayList<>();
-        unguessedLetters = 0;
-
-    }
-
-    public void decrementUnguessedLetters() {
-        this.unguessedLetters -= 1;
+        labelPool = new ArrayList<>();
+        wordBox = new HBox();
+        wordBox.setSpacing(5);
     }
 
     /**
      * Gets the number of unguessed letters left.
      * @return
      */
-    public int getUnguessedLetters() { return unguessedLetters; }
+    public int getUnguessedLetters() { return session == null ? 0 : session.getUnguessedLetters(); }
 
     /**
-     * Sets the word to guess and creates a list of labels with each letter of the word in a label.
+     * Starts a new game with the word to guess.
      * @param chosenWord
      */
     public void setChosenWord(String chosenWord) {
-        this.chosenWord = chosenWord.toUpperCase();
-        unguessedLetters = chosenWord.length();
-        for (int i = 0; i < chosenWord.length(); i++) {
-            LetterLabel letterLabel = new LetterLabel(Character.toString(this.chosenWord.charAt(i)));
+        setSession(new GameSession(chosenWord, Hangman.getGuessesAllowed()));
+    }
+
+    /**
+     * Sets the game to display and creates a list of labels with each letter of the word in a label.
+     * Letters that were already guessed in the game are shown right away.
+     * @param session
+     */
+    public void setSession(GameSession session) {
+        this.session = session;
+        this.dictionary = null;
+        this.wordIndex = -1;
+        String word = session.getWord();
+        for (int i = 0; i < word.length(); i++) {
+            LetterLabel letterLabel;
+            if (labelPool.isEmpty()) {
+                letterLabel = new LetterLabel(Character.toString(word.charAt(i)));
+            }
+            else {
+                letterLabel = labelPool.remove(labelPool.size() - 1);
+                letterLabel.reset(Character.toString(word.charAt(i)));
+            }
+            if (session.isRevealed(i)) {
+                letterLabel.setGuessed();
+            }
             letterLabels.add(letterLabel);
         }
     }
 
+    public GameSession getSession() { return session; }
+
     /**
-     * Returns the black boxes of the word.
+     * Returns the black boxes of the word. The same box is returned every game, with the current word's labels in it.
      * @return
      */
     public HBox getLetterLabels() {
-        HBox hBox = new HBox();
         double screenWidth = Screen.getPrimary().getVisualBounds().getWidth() / 3;
+        List<StackPane> stackPanes = new ArrayList<>(letterLabels.size());
         for (LetterLabel l: letterLabels) {
-            l.setLabelWidth(screenWidth / chosenWord.length());
-            hBox.getChildren().add(l.getStackPane());
+            l.setLabelWidth(screenWidth / letterLabels.size());
+            stackPanes.add(l.getStackPane());
         }
-        hBox.setSpacing(5);
-
-        hBox.setMaxWidth(screenWidth);
-        return hBox;
+        wordBox.getChildren().setAll(stackPanes);
+        wordBox.setMaxWidth(screenWidth);
+        return wordBox;
     }
 
 
@@ -67,49 +97,211 @@ public class WordChooser {
         return letterLabels;
     }
 
-    public String getChosenWord() { return this.chosenWord; }
+    public String getChosenWord() { return session == null ? "" : session.getWord(); }
 
     /**
-     * Sets the list of words from the words.txt to chose a word from
-     * @throws FileNotFoundException
+     * Gets the dictionary the game's word is from, for the game history. A game that was loaded or recovered is from
+     * the current dictionary. Like everything here it's only for the FX thread, which changes the game.
+     * @return null if words come from a file given with -Dhangman.words, or the dictionary can't be read.
      */
-    public void setListOfWords() throws FileNotFoundException, NullPointerException {
-        Scanner reader = new Scanner(WordChooser.class.getResourceAsStream("words.txt"));
-        while(reader.hasNextLine()) {
-            listOfWords.add(reader.nextLine());
+    public Dictionary getDictionary() {
+        if (dictionary == null && wordSource == null && session != null) {
+            try {
+                dictionary = Dictionary.getDefault();
+            } catch (IOException e) {
+                return null;
+            }
         }
-        reader.close();
+        return dictionary;
     }
 
-    public void setRandomWord() {
-        int i = (int) (Math.random() * listOfWords.size());
-        this.setChosenWord(listOfWords.get(i));
+    /**
+     * Gets every word of a length in the file given with -Dhangman.words, for hints in games from it. They're read on
+     * another thread, since it means going through the whole file.
+     * @param length
+     * @return completes with null if words don't come from a file.
+     */
+    public CompletableFuture<Dictionary> wordsOfLength(int length) {
+        WordSource words = wordSource;
+        if (words == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> Dictionary.of(words.sample(Integer.MAX_VALUE,
+                word -> word.length() == length, ThreadLocalRandom.current())));
     }
 
-    public boolean checkGuessCorrect(String letter) {
-        for (LetterLabel l: letterLabels) {
-            if(l.updateGuessed(letter)) {
-                decrementUnguessedLetters();
+    /**
+     * Gets where the game's word is in getDictionary(), for the game history. An evil game's word is only known once
+     * it's over.
+     * @return the index, or -1 if the word isn't in a dictionary.
+     */
+    public int getWordIndex() {
+        Dictionary dictionary = getDictionary();
+        if (wordIndex < 0 && dictionary != null) {
+            int index = dictionary.indexOf(session.getWord());
+            if (!(session instanceof EvilGameSession) || session.isOver()) {
+                wordIndex = index;
+            }
+            return index;
+        }
+        return wordIndex;
+    }
+
+    /**
+     * Sets where to choose words from: the shared dictionary, words.txt being only read the first time, or the file
+     * given with -Dhangman.words=path, which is picked from without reading it all into memory.
+     * @throws IOException if there is no words.txt, or the file given can't be read.
+     */
+    public void setListOfWords() throws IOException {
+        String words = System.getProperty("hangman.words");
+        if (wordSource == null && words != null) {
+            wordSource = WordSource.open(Paths.get(words));
+        }
+        wordSource();
+    }
+
+    /**
+     * @return where words are chosen from, the default dictionary as of now unless -Dhangman.words was given.
+     */
+    private WordSource wordSource() throws IOException {
+        return wordSource != null ? wordSource : Dictionary.getDefault();
+    }
+
+    /**
+     * Starts a game with a random word of the difficulty. From the dictionary no word comes up twice until every word
+     * of the difficulty has, even across restarts: the player's WordScheduler seed and cursors are kept in the user's
+     * preferences. Set -Dhangman.seed=number to play a fixed order of words instead, starting from the first.
+     * Difficulties only apply to the dictionary, words from a file given with -Dhangman.words are picked from all of
+     * it.
+     * @param level
+     * @throws IOException if words.txt can't be read.
+     */
+    public void setRandomWord(DifficultyIndex.Level level) throws IOException {
+        WordSource wordSource = wordSource();
+        int word = randomIndex(wordSource, level);
+        if (word >= 0) {
+            Dictionary dictionary = (Dictionary) wordSource;
+            this.setChosenWord(dictionary.word(word));
+            this.dictionary = dictionary;   //Kept with the index, the default may have changed by the time it's over
+            this.wordIndex = word;
+        }
+        else {
+            this.setChosenWord(wordSource.randomWord(ThreadLocalRandom.current()));
+        }
+    }
+
+    /**
+     * @return the index of the next word of the difficulty if words come from a dictionary that has some, otherwise -1.
+     */
+    private int randomIndex(WordSource wordSource, DifficultyIndex.Level level) {
+        if (wordSource instanceof Dictionary dictionary) {
+            DifficultyIndex index = level == DifficultyIndex.Level.ANY ? null : DifficultyIndex.of(dictionary);
+            int size = index == null ? dictionary.size() : index.size(level);
+            if (size > 0) {
+                int rank = nextRank(level, size);
+                return index == null ? rank : index.wordAt(level, rank);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the player's scheduler for the level on, starting over if the number of words changed.
+     * @return the rank of the next word among the level's words.
+     */
+    private int nextRank(DifficultyIndex.Level level, int size) {
+        String fixedSeed = System.getProperty("hangman.seed");
+        WordScheduler scheduler = schedulers.get(level);
+        if (scheduler == null || scheduler.getSize() != size) {
+            long seed;
+            long cursor = 0;
+            if (fixedSeed != null) {
+                seed = Long.parseLong(fixedSeed);
+            }
+            else {
+                seed = preferences.getLong("seed", 0);
+                if (seed == 0) {
+                    seed = ThreadLocalRandom.current().nextLong() | 1;
+                    preferences.putLong("seed", seed);
+                }
+                if (preferences.getInt("size." + level, -1) == size) {
+                    cursor = preferences.getLong("cursor." + level, 0);
+                }
+                preferences.putInt("size." + level, size);
             }
+            scheduler = new WordScheduler(size, seed + level.ordinal(), cursor);
+            schedulers.put(level, scheduler);
+        }
+        int rank = scheduler.next();
+        if (fixedSeed == null) {
+            preferences.putLong("cursor." + level, scheduler.getCursor());
+        }
+        return rank;
+    }
+
+    /**
+     * Starts an evil game, where the word isn't picked until it has to be. The length of the word is the length of a
+     * random word of the difficulty, so lengths come up as often as in a normal game. With a word list too big for
+     * memory the game dodges between a random sample of EVIL_CANDIDATES words of that length, sampled on another
+     * thread since it means reading the whole file.
+     * @param level
+     * @return completes, on the FX thread, once the game is set, with false if another game was started first.
+     * @throws IOException if words.txt can't be read.
+     */
+    public CompletableFuture<Boolean> setRandomEvilWord(DifficultyIndex.Level level) throws IOException {
+        WordSource wordSource = wordSource();   //The length and the candidates have to come from the same words
+        Random random = ThreadLocalRandom.current();
+        int word = randomIndex(wordSource, level);
+        int length = word >= 0 ? ((Dictionary) wordSource).length(word) : wordSource.randomWord(random).length();
+        if (wordSource instanceof Dictionary dictionary) {
+            setSession(new EvilGameSession(dictionary, length, Hangman.getGuessesAllowed()));
+            this.dictionary = dictionary;   //The word is picked from it as the game goes
+            return CompletableFuture.completedFuture(true);
+        }
+        long game = games;
+        return CompletableFuture.supplyAsync(() -> Dictionary.of(wordSource.sample(EVIL_CANDIDATES,
+                        candidate -> candidate.length() == length, ThreadLocalRandom.current())))
+                .thenApplyAsync(candidates -> {
+                    if (game != games) {
+                        return false;
+                    }
+                    setSession(new EvilGameSession(candidates, length, Hangman.getGuessesAllowed()));
+                    return true;
+                }, Platform::runLater);
+    }
+
+    /**
+     * Shows the labels at the positions a guess of the letter revealed.
+     * @param letter
+     * @param positions a mask of the positions, bit 0 being the first letter.
+     */
+    public void showLetter(char letter, long positions) {
+        for (long left = positions; left != 0; left &= left - 1) {
+            LetterLabel l = letterLabels.get(Long.numberOfTrailingZeros(left));
+            //In an evil game the word may have changed since the labels were made
+            l.setLetter(Character.toString(letter));
+            l.setGuessed();
         }
-        return chosenWord.contains(letter);
     }
 
     /**
      * Reveals all the letters that were not guessed/
      */
     public void revealWord() {
-        for (LetterLabel l: letterLabels) {
-            l.revealLetter();
+        String word = session.getWord();
+        for (int i = 0; i < letterLabels.size(); i++) {
+            letterLabels.get(i).setLetter(Character.toString(word.charAt(i)));
+            letterLabels.get(i).revealLetter();
         }
     }
 
     /**
-     * Resets the instance.
+     * Resets the instance. The labels are kept to be reused by the next game.
      */
     public void clear() {
-        this.chosenWord = "";
-        this.unguessedLetters = 0;
+        games++;
+        this.session = null;
+        this.labelPool.addAll(letterLabels);
         this.letterLabels.clear();
     }
 
@@ -117,20 +309,39 @@ public class WordChooser {
 class LetterLabel {
     private static final int labelWidth = 30;
     private static final int labelHeight = 50;
-    private static final int letterFontSize = 25;
+    private static final int MAX_CACHED_FONTS = 64;
+    //Only used on the FX thread, least recently used first
+    private static final Map<Long, Font> fontsBySize = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Font> eldest) {
+            return size() > MAX_CACHED_FONTS;
+        }
+    };
+    private static final Font letterFont = fontOfSize(25);
     private boolean guessed;
+    private double width = Double.NaN;
     private Text letter;
     private StackPane stackPane;
     private Rectangle rectangle;
     public LetterLabel (String letter){
-        guessed = false;
         this.letter = new Text(letter);
+        this.letter.setFont(letterFont);
+        rectangle = new Rectangle(labelWidth, labelHeight, Color.BLACK);
+        stackPane = new StackPane(rectangle, this.letter);
+        reset(letter);
+    }
+
+    /**
+     * Puts the label back the way it is at the start of a game, so it can be reused for another word.
+     * @param letter
+     */
+    public void reset(String letter) {
+        guessed = false;
+        this.letter.setText(letter);
         this.letter.setVisible(false);
-        this.letter.setFont(new Font(letterFontSize));
         this.letter.setFill(Color.WHITE);
-        rectangle = new Rectangle(labelWidth, labelHeight, Color.BLACK);
+        rectangle.setFill(Color.BLACK);
         rectangle.setStroke(Color.BLACK);
-        stackPane = new StackPane(rectangle, this.letter);
     }
 
     public Boolean wasGuessed() { return this.guessed; }
@@ -138,28 +349,35 @@ class LetterLabel {
         this.letter.setText(s);
     }
     public void setLabelWidth(double width) {
+        if (width == this.width) {
+            return;
+        }
+        this.width = width;
         this.rectangle.setWidth(width);
         this.rectangle.setHeight(width + 40);
-        this.letter.setFont(new Font(width));
+        this.letter.setFont(fontOfSize(width));
+    }
+
+    /**
+     * Gets a font of about the size, to the nearest point. Fonts are cached, a resize asks for the same few sizes for
+     * every label. Only the most recently used sizes are kept, dragging the window through every width would
+     * otherwise keep a font for each of them.
+     * @param size
+     * @return
+     */
+    private static Font fontOfSize(double size) {
+        return fontsBySize.computeIfAbsent(Math.round(size), points -> new Font(points));
     }
     public String getLetter() {
         return this.letter.getText();
     }
 
     /**
-     * Update the value of this.guessed.
-     * If this letter hasn't already been guessed, then check if the argument letter matches with this.letter.
-     * If it matches then show the letter to the user to show that their guess was correct.
-     * @param letter
-     * @return
+     * Marks this letter as guessed and shows it to the user to show that their guess was correct.
      */
-    public boolean updateGuessed(String letter) {
-        if(!this.guessed) {
-            this.guessed = letter.equals(this.letter.getText());
-            this.letter.setVisible(this.guessed);
-            return this.guessed;
-        }
-        return false;
+    public void setGuessed() {
+        this.guessed = true;
+        this.letter.setVisible(true);
     }
 
     /**
@@ -0,0 +1,110 @@
+import java.time.LocalDate;
+
+/**
+ * Hands a player words in an order that never repeats one until they've all been played, remembering only a seed and
+ * how many words have been handed out, so millions of players cost 16 bytes each instead of a set of seen words.
+ * <p>
+ * Word i of a round is a pseudo-random permutation of i: a 4 round Feistel network over the smallest even number of
+ * bits that fits the dictionary, with values past the end walked through the network again until they land inside it.
+ * Each round through the dictionary uses a new permutation, and the same seed always gives the same words, which makes
+ * games reproducible for testing and lets everyone share a word of the day.
+ * <p>
+ * Not thread safe, each player has their own.
+ */
+public final class WordScheduler {
+    private static final int ROUNDS = 4;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long DAILY_SEED = 0x484E4744_41494C59L;
+
+    private final int size;
+    private final long seed;
+    private long cursor;
+
+    /**
+     * @param size   the number of words to schedule, the indexes handed out are 0 to size - 1.
+     * @param seed   picks the order, a random one for each player or a fixed one for reproducible games.
+     * @param cursor how many words were handed out already, 0 for a new player.
+     */
+    public WordScheduler(int size, long seed, long cursor) {
+        if (size <= 0 || cursor < 0) {
+            throw new IllegalArgumentException("Need at least one word and a cursor of at least 0");
+        }
+        this.size = size;
+        this.seed = seed;
+        this.cursor = cursor;
+    }
+
+    public WordScheduler(int size, long seed) {
+        this(size, seed, 0);
+    }
+
+    /**
+     * Gets the word of the day, the same for everyone on that day. No word is the word of the day twice until every
+     * word has been.
+     * @param size the number of words.
+     * @param date
+     * @return the index of the word.
+     */
+    public static int dailyWord(int size, LocalDate date) {
+        return new WordScheduler(size, DAILY_SEED).wordAt(Math.floorMod(date.toEpochDay(), Long.MAX_VALUE));
+    }
+
+    /**
+     * Hands out the next word.
+     * @return the index of the word.
+     */
+    public int next() {
+        return wordAt(cursor++);
+    }
+
+    /**
+     * Gets the word handed out at some point, without moving the cursor.
+     * @param position 0 for the first word ever handed out.
+     * @return the index of the word.
+     */
+    public int wordAt(long position) {
+        return permute((int) (position % size), size, mix(seed + (position / size) * GOLDEN_GAMMA));
+    }
+
+    public int getSize() { return size; }
+
+    public long getSeed() { return seed; }
+
+    /**
+     * @return how many words were handed out, store it with the seed to carry on where the player left off.
+     */
+    public long getCursor() { return cursor; }
+
+    /**
+     * Maps each of 0 to size - 1 to a different one of 0 to size - 1, the mapping depending on the key.
+     */
+    static int permute(int index, int size, long key) {
+        if (size == 1) {
+            return 0;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        int half = (bits + 1) / 2;
+        long mask = (1L << half) - 1;
+        long value = index;
+        do {    //Values the network sends past the end are sent through again, they land inside in under 4 tries on average
+            long left = value >>> half;
+            long right = value & mask;
+            for (int round = 0; round < ROUNDS; round++) {
+                long next = left ^ (mix(right ^ (key + round * GOLDEN_GAMMA)) & mask);
+                left = right;
+                right = next;
+            }
+            value = left << half | right;
+        } while (value >= size);
+        return (int) value;
+    }
+
+    /**
+     * SplitMix64's finalizer, every bit of the result depends on every bit of x.
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
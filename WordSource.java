@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Somewhere to pick words to play from. A Dictionary holds its words in memory, a MappedWordSource reads them from a
+ * file of any size as they're needed. Words handed out are upper-case, A-Z only, and at most
+ * Dictionary.MAX_WORD_LENGTH letters long.
+ */
+public interface WordSource {
+    /**
+     * Picks a word, every word being equally likely.
+     * @param random
+     * @return
+     */
+    String randomWord(Random random);
+
+    /**
+     * Picks up to count different words that pass the filter, every such word being equally likely to be picked.
+     * @param count
+     * @param filter for example a length or difficulty the words must have.
+     * @param random
+     * @return fewer than count words only if fewer pass the filter, in no particular order.
+     */
+    List<String> sample(int count, Predicate<String> filter, Random random);
+
+    /**
+     * Opens a file with one word per line, without reading it into memory.
+     * @param path
+     * @return
+     * @throws IOException if the file can't be read or has no usable words.
+     */
+    static WordSource open(Path path) throws IOException {
+        return MappedWordSource.open(path);
+    }
+
+    /**
+     * Keeps a uniform random sample of a stream of words of unknown length, in memory for the sample only.
+     */
+    class Reservoir {
+        private final int count;
+        private final Random random;
+        private final List<String> words;
+        private long offered;
+
+        public Reservoir(int count, Random random) {
+            this.count = count;
+            this.random = random;
+            this.words = new ArrayList<>(Math.min(count, 1024));
+        }
+
+        public void offer(String word) {
+            offered++;
+            if (words.size() < count) {
+                words.add(word);
+            }
+            else {  //Keep the word with probability count / offered, in place of a random one
+                long replace = random.nextLong(offered);
+                if (replace < count) {
+                    words.set((int) replace, word);
+                }
+            }
+        }
+
+        public List<String> getWords() { return words; }
+    }
+}
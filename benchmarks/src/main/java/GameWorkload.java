@@ -0,0 +1,138 @@
+import hangman.jmh.Workload;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Does the benchmarks' work with the game's classes, see Workload. WordChooser and HangmanGame can't run without a
+ * window, so this does what they call: Dictionary for setListOfWords, Dictionary and DifficultyIndex for
+ * setRandomWord, GameSession for guessing, and SaveFile for saving and loading.
+ */
+public class GameWorkload implements Workload {
+    private static final int WORDS = 1024;  //Games are played with these, so picking words isn't part of them
+
+    private final Random random = new Random(42);
+    private byte[] wordList;
+    private Dictionary dictionary;
+    private DifficultyIndex difficulty;
+    private Path compiled;
+    private Path saved;
+    private String[] words;
+    private GameSession session;
+    private int game;
+    private int letter;
+    private ByteBuffer encoded;
+
+    @Override
+    public void setUp(int words, Path directory) throws IOException {
+        wordList = words == 0 ? readShippedWords() : generateWords(words, new Random(words));
+        dictionary = Dictionary.read(new ByteArrayInputStream(wordList));
+        difficulty = DifficultyIndex.of(dictionary);
+        compiled = directory.resolve("words.dict");
+        DictionarySnapshot.write(dictionary, compiled);
+        this.words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            this.words[i] = dictionary.word(dictionary.randomIndex(random));
+        }
+        session = new GameSession(this.words[0], GameSession.DEFAULT_GUESSES_ALLOWED);
+        GameSession half = new GameSession(this.words[1], GameSession.DEFAULT_GUESSES_ALLOWED);
+        for (int i = 0; i < 4 && !half.isOver(); i++) {
+            half.guess(Solver.LETTERS_BY_FREQUENCY.charAt(i));
+        }
+        encoded = SaveFile.encode(Collections.singletonList(half));
+        saved = directory.resolve("game.hng");
+        SaveFile.save(saved, half);
+    }
+
+    @Override
+    public int readDictionary() throws IOException {
+        return Dictionary.read(new ByteArrayInputStream(wordList)).size();
+    }
+
+    @Override
+    public int mapDictionary() throws IOException {
+        return DictionarySnapshot.map(compiled).size();
+    }
+
+    @Override
+    public int randomWord() {
+        return dictionary.word(dictionary.randomIndex(random)).length();
+    }
+
+    @Override
+    public int hardWord() {
+        return dictionary.word(difficulty.randomIndex(random, DifficultyIndex.Level.HARD)).length();
+    }
+
+    @Override
+    public long guess() {
+        if (session.isOver()) {
+            session = new GameSession(words[++game & (WORDS - 1)], GameSession.DEFAULT_GUESSES_ALLOWED);
+            letter = 0;
+        }
+        return session.guess(Solver.LETTERS_BY_FREQUENCY.charAt(letter++));
+    }
+
+    @Override
+    public int solve() {
+        GameSession solved = new GameSession(words[++game & (WORDS - 1)], GameSession.DEFAULT_GUESSES_ALLOWED);
+        Solver solver = new Solver(dictionary, solved.getWord().length());
+        while (!solved.isOver()) {
+            char guess = solver.bestGuess();
+            solver.update(guess, solved.guess(guess));
+        }
+        return solved.getRemainingGuesses();
+    }
+
+    @Override
+    public int encode() {
+        return SaveFile.encode(Collections.singletonList(session)).remaining();
+    }
+
+    @Override
+    public int decode() throws IOException {
+        return SaveFile.decode(encoded.duplicate()).get(0).getGuessedLetters();
+    }
+
+    @Override
+    public long save() throws IOException {
+        SaveFile.save(saved, session);
+        return Files.size(saved);
+    }
+
+    @Override
+    public int load() throws IOException {
+        return SaveFile.load(saved).getGuessedLetters();
+    }
+
+    private static byte[] readShippedWords() throws IOException {
+        try (InputStream in = GameWorkload.class.getResourceAsStream("words.txt")) {
+            if (in == null) {
+                throw new IOException("words.txt");
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Makes a word list of random words between 3 and 16 letters long, one per line.
+     */
+    static byte[] generateWords(int count, Random random) {
+        StringBuilder builder = new StringBuilder(count * 10);
+        for (int i = 0; i < count; i++) {
+            int length = 3 + random.nextInt(14);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+            builder.append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
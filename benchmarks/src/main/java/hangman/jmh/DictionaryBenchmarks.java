@@ -0,0 +1,60 @@
+package hangman.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting the words to play with (WordChooser.setListOfWords) and picking one (WordChooser.setRandomWord).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DictionaryBenchmarks {
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int readWordList(Words words) throws Exception {
+        return words.workload.readDictionary();
+    }
+
+    /**
+     * Mapping is timed in batches, with a GC after each one to unmap them (a mapping can't be let go of any other way),
+     * so a fast run can't use up the process's mappings. The score is for a batch of 1,000.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10, batchSize = 1000)
+    @Measurement(iterations = 20, batchSize = 1000)
+    public int mapCompiled(Words words) throws Exception {
+        return words.workload.mapDictionary();
+    }
+
+    @TearDown(Level.Iteration)
+    public void unmap() {
+        System.gc();
+    }
+
+    @Benchmark
+    public int randomWord(Words words) {
+        return words.workload.randomWord();
+    }
+
+    @Benchmark
+    public int randomHardWord(Words words) {
+        return words.workload.hardWord();
+    }
+}
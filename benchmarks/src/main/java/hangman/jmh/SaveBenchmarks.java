@@ -0,0 +1,46 @@
+package hangman.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading a game from HangmanGame's Save and Load buttons. The .hng format is timed on its own, and then
+ * with the file: saving waits for the disk to sync, which is most of its time and varies a lot, so it's measured for
+ * longer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SaveBenchmarks {
+    @Benchmark
+    public int encode(Words words) {
+        return words.workload.encode();
+    }
+
+    @Benchmark
+    public int decode(Words words) throws Exception {
+        return words.workload.decode();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 10, time = 2)
+    public long saveFile(Words words) throws Exception {
+        return words.workload.save();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int loadFile(Words words) throws Exception {
+        return words.workload.load();
+    }
+}
@@ -0,0 +1,43 @@
+package hangman.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * The dictionary every benchmark runs with: the shipped words.txt (size 0) and generated lists of random words, so
+ * slowdowns that only show up on big word lists are caught too.
+ */
+@State(Scope.Benchmark)
+public class Words {
+    @Param({"0", "100000", "1000000"})
+    public int size;
+
+    public Workload workload;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("hangman-benchmarks");
+        workload = Workload.create();
+        workload.setUp(size, directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,75 @@
+package hangman.jmh;
+
+import java.nio.file.Path;
+
+/**
+ * The work the benchmarks measure, one method per benchmark. JMH only runs benchmarks in a named package, and the
+ * game's classes are in the unnamed package, which a named package can't see. So the work is done by GameWorkload, a
+ * class in the unnamed package that implements this, and the benchmarks call it through this interface. It's the only
+ * implementation loaded, so the JIT calls it directly and the interface costs nothing.
+ */
+public interface Workload {
+    /**
+     * Builds the dictionary to work with.
+     * @param words     how many random words to generate, 0 for the shipped words.txt.
+     * @param directory an empty directory for files.
+     */
+    void setUp(int words, Path directory) throws Exception;
+
+    /**
+     * @return the size of a dictionary built from the word list, like loading words.txt does.
+     */
+    int readDictionary() throws Exception;
+
+    /**
+     * @return the size of the dictionary mapped from a compiled words.dict.
+     */
+    int mapDictionary() throws Exception;
+
+    /**
+     * @return the length of a random word, like starting a game does.
+     */
+    int randomWord();
+
+    /**
+     * @return the length of a random HARD word.
+     */
+    int hardWord();
+
+    /**
+     * Makes a guess in a game, starting another game when it's over.
+     * @return the positions the guess revealed.
+     */
+    long guess();
+
+    /**
+     * Plays a whole game with the solver.
+     * @return the guesses left at the end.
+     */
+    int solve();
+
+    /**
+     * @return the bytes of a game saved in the .hng format, without the file.
+     */
+    int encode();
+
+    /**
+     * @return the guessed letters of a game read from .hng bytes, without the file.
+     */
+    int decode() throws Exception;
+
+    /**
+     * Saves a game to a file, which is synced to disk.
+     * @return the size of the file.
+     */
+    long save() throws Exception;
+
+    /**
+     * @return the guessed letters of a game loaded from a file.
+     */
+    int load() throws Exception;
+
+    static Workload create() throws ReflectiveOperationException {
+        return (Workload) Class.forName("GameWorkload").getDeclaredConstructor().newInstance();
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DictionarySnapshotTest {
+    private static final int BUCKET_STARTS = 16 + 26 * 4;
+    private static final int OFFSETS = BUCKET_STARTS + (Dictionary.BUCKETS + 1) * 4;
+
+    @TempDir
+    Path directory;
+
+    private Path compiled(Dictionary dictionary) throws IOException {
+        Path path = directory.resolve("words.dict");
+        DictionarySnapshot.write(dictionary, path);
+        return path;
+    }
+
+    private static void assertCorrupt(Path path, int position, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        Path corrupt = path.resolveSibling("corrupt.dict");
+        Files.write(corrupt, bytes);
+        assertThrows(IOException.class, () -> DictionarySnapshot.map(corrupt), "int at " + position + " = " + value);
+    }
+
+    @Test
+    void mappedWordsAreTheWrittenOnes() throws IOException {
+        Dictionary dictionary = Dictionary.of(Arrays.asList("cat", "dog", "emu", "horse", "zebra", "a", "hangman"));
+        Dictionary mapped = DictionarySnapshot.map(compiled(dictionary));
+        assertEquals(dictionary.size(), mapped.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            assertEquals(dictionary.word(i), mapped.word(i));
+        }
+    }
+
+    @Test
+    void tablesThatDontAddUpAreRejected() throws IOException {
+        Dictionary dictionary = Dictionary.of(Arrays.asList("cat", "dog", "emu", "horse", "zebra", "a", "hangman"));
+        Path path = compiled(dictionary);
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        int words = dictionary.size();
+        for (int i = 1; i < words; i++) {
+            int offset = file.getInt(OFFSETS + i * 4);
+            assertCorrupt(path, OFFSETS + i * 4, offset + 1);
+            assertCorrupt(path, OFFSETS + i * 4, offset - 1);
+            assertCorrupt(path, OFFSETS + i * 4, -offset);
+        }
+        assertCorrupt(path, OFFSETS, 1);
+        for (int bucket = 1; bucket < Dictionary.BUCKETS; bucket++) {
+            int start = file.getInt(BUCKET_STARTS + bucket * 4);
+            assertCorrupt(path, BUCKET_STARTS + bucket * 4, start == 0 ? words + 1 : start - 1);
+        }
+        assertCorrupt(path, 16, -1);
+        assertCorrupt(path, 16, words + 1);
+    }
+}
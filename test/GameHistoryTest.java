@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHistoryTest {
+    private static final long DICTIONARY = 0x1234_5678_9ABC_DEF0L;
+
+    @TempDir
+    Path directory;
+
+    private static GameSession played(String word, String letters) {
+        GameSession session = new GameSession(word, GameSession.DEFAULT_GUESSES_ALLOWED);
+        for (char letter : letters.toCharArray()) {
+            session.guess(letter);
+        }
+        return session;
+    }
+
+    @Test
+    void gamesSurviveClosingAndOpeningAgain() throws IOException {
+        try (GameHistory history = GameHistory.open(directory)) {
+            history.record(DICTIONARY, 0, played("CAT", "ETAC"));
+            history.record(DICTIONARY, 1, played("DOG", "ABCEFHIJKL"));
+            history.flush();
+            history.record(DICTIONARY, -1, played("ZZZ", "SZ"));
+        }
+        try (GameHistory history = GameHistory.open(directory)) {
+            history.record(DICTIONARY, 0, played("CAT", "TAC"));
+        }
+        assertFalse(Files.exists(directory.resolve("games-000000.col")), "closing doesn't seal the tail");
+
+        GameHistory.Summary summary = GameHistory.scan(directory, DICTIONARY);
+        assertEquals(4, summary.getGames());
+        assertEquals(3, summary.getWins());
+        assertEquals(2, summary.getGamesForWord(0));
+        assertEquals(1.0, summary.getWinRate(0));
+        assertEquals(1, summary.getGamesForWord(1));
+        assertEquals(0.0, summary.getWinRate(1));
+        assertEquals(1, summary.getFirstGuesses('E'));
+        assertEquals(1, summary.getFirstGuesses('A'));
+        assertEquals(1, summary.getFirstGuesses('S'));
+        assertEquals(1, summary.getFirstGuesses('T'));
+        assertEquals(4, summary.getGamesForLength(3));
+        assertEquals((4 + 10 + 2 + 3) / 4.0, summary.getAverageGuesses(3));
+    }
+
+    /**
+     * Cuts the log short at every length, like a crash part way through a flush, and checks the flushes that made it
+     * to disk are all there and new games carry on after them.
+     */
+    @Test
+    void aLogCutShortKeepsEveryCompleteFlush() throws IOException {
+        Path original = directory.resolve("original");
+        List<Long> flushEnds = new ArrayList<>();
+        try (GameHistory history = GameHistory.open(original)) {
+            for (int i = 0; i < 5; i++) {
+                history.record(DICTIONARY, i, played("WORD", "XYZ".substring(0, i % 4) + "DROW"));
+                history.flush();
+                flushEnds.add(Files.size(original.resolve("games-000000.log")));
+            }
+        }
+        byte[] log = Files.readAllBytes(original.resolve("games-000000.log"));
+        for (int length = 0; length <= log.length; length++) {
+            Path crashed = directory.resolve("crashed-" + length);
+            Files.createDirectories(crashed);
+            Files.write(crashed.resolve("games-000000.log"), Arrays.copyOf(log, length));
+            int flushed = 0;
+            while (flushed < flushEnds.size() && flushEnds.get(flushed) <= length) {
+                flushed++;
+            }
+            try (GameHistory history = GameHistory.open(crashed)) {
+                assertEquals(flushed, GameHistory.scan(crashed, DICTIONARY).getGames(), "log cut at " + length);
+                history.record(DICTIONARY, 9, played("WORD", "WORD"));
+            }
+            GameHistory.Summary summary = GameHistory.scan(crashed, DICTIONARY);
+            assertEquals(flushed + 1, summary.getGames(), "log cut at " + length);
+            assertEquals(1, summary.getGamesForWord(9), "log cut at " + length);
+        }
+    }
+
+    @Test
+    void anotherDictionarySealsTheTail() throws IOException {
+        long other = DICTIONARY + 1;
+        try (GameHistory history = GameHistory.open(directory)) {
+            history.record(DICTIONARY, 0, played("CAT", "CAT"));
+            history.record(DICTIONARY, 1, played("DOG", "DOG"));
+            history.record(other, 0, played("EMU", "EMU"));
+        }
+        assertTrue(Files.exists(directory.resolve("games-000000.col")));
+        assertFalse(Files.exists(directory.resolve("games-000000.log")));
+        assertTrue(Files.exists(directory.resolve("games-000001.log")));
+
+        try (GameHistory history = GameHistory.open(directory)) {
+            history.record(other, 2, played("YAK", "YAK"));
+        }
+        assertFalse(Files.exists(directory.resolve("games-000001.col")), "same dictionary, same tail");
+
+        GameHistory.Summary first = GameHistory.scan(directory, DICTIONARY);
+        assertEquals(4, first.getGames());
+        assertEquals(1, first.getGamesForWord(0));
+        assertEquals(1, first.getGamesForWord(1));
+        assertEquals(0, first.getGamesForWord(2));
+        GameHistory.Summary second = GameHistory.scan(directory, other);
+        assertEquals(4, second.getGames());
+        assertEquals(1, second.getGamesForWord(0));
+        assertEquals(0, second.getGamesForWord(1));
+        assertEquals(1, second.getGamesForWord(2));
+    }
+}
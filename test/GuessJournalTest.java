@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuessJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversOnlyGamesInProgress() throws IOException {
+        try (GuessJournal journal = GuessJournal.open(directory)) {
+            journal.newGame(1, new GameSession("HANGMAN", 10));
+            journal.guess(1, 'a');
+            journal.guess(1, 'Z');
+            journal.newGame(2, new GameSession("JAVA", 10));
+            for (char letter : "JAV".toCharArray()) {
+                journal.guess(2, letter);   //Won, so forgotten
+            }
+            journal.newGame(3, new GameSession("QUIT", 10));
+            journal.endGame(3);
+            journal.newGame(4, GameSession.restore("MANY", 200, 1 << ('X' - 'A'), 199));
+        }
+        try (GuessJournal journal = GuessJournal.open(directory)) {
+            Map<Long, GameSession> recovered = journal.getRecovered();
+            assertEquals(List.of(1L, 4L), recovered.keySet().stream().sorted().toList());
+            GameSession hangman = recovered.get(1L);
+            assertTrue(hangman.isGuessed('A') && hangman.isGuessed('Z'));
+            assertEquals(9, hangman.getRemainingGuesses());
+            assertEquals(200, recovered.get(4L).getGuessesAllowed());
+            assertEquals(199, recovered.get(4L).getRemainingGuesses());
+        }
+    }
+
+    /**
+     * Cuts the log off at every length, like a crash part way through a write would, and checks the journal always
+     * opens with the games as of some earlier guess, never fewer guesses for a longer log.
+     */
+    @Test
+    void crashAnywhereRecoversAnEarlierState() throws IOException {
+        Path written = directory.resolve("written");
+        try (GuessJournal journal = GuessJournal.open(written)) {
+            journal.newGame(7, new GameSession("HANGMAN", 10));
+            journal.sync();
+            for (char letter : "AZNQ".toCharArray()) {
+                journal.guess(7, letter);
+                journal.sync();
+            }
+        }
+        byte[] log = Files.readAllBytes(written.resolve("journal.log"));
+        int lastGuesses = -1;
+        for (int length = 0; length <= log.length; length++) {
+            Path crashed = directory.resolve("crashed" + length);
+            Files.createDirectories(crashed);
+            Files.write(crashed.resolve("journal.log"), Arrays.copyOf(log, length));
+            try (GuessJournal journal = GuessJournal.open(crashed)) {
+                GameSession game = journal.getRecovered().get(7L);
+                int guesses = game == null ? 0 : 1 + game.getGuessCount();
+                assertTrue(guesses >= lastGuesses, "fewer guesses recovered from " + length + " bytes");
+                if (game != null) {
+                    assertEquals("HANGMAN", game.getWord());
+                    assertEquals(10 - game.getWrongGuesses(), game.getRemainingGuesses());
+                }
+                lastGuesses = guesses;
+            }
+            assertTrue(Files.size(crashed.resolve("journal.log")) <= length);
+        }
+        assertEquals(5, lastGuesses);
+    }
+
+    @Test
+    void garbageAfterTheLastFrameIsDropped() throws IOException {
+        try (GuessJournal journal = GuessJournal.open(directory)) {
+            journal.newGame(1, new GameSession("HANGMAN", 10));
+            journal.guess(1, 'H');
+        }
+        Files.write(directory.resolve("journal.log"), new byte[] {0, 0, 0, 9, 1, 2, 3, 4, 5},
+                StandardOpenOption.APPEND);   //A frame header promising more than there is
+        try (GuessJournal journal = GuessJournal.open(directory)) {
+            assertTrue(journal.getRecovered().get(1L).isGuessed('H'));
+            journal.guess(1, 'A');
+        }
+        try (GuessJournal journal = GuessJournal.open(directory)) {   //Appended after the good frames, not the garbage
+            assertTrue(journal.getRecovered().get(1L).isGuessed('A'));
+        }
+    }
+
+    @Test
+    void compactionKeepsEveryGameInProgress() throws IOException {
+        Map<Long, GameSession> expected = new HashMap<>();
+        try (GuessJournal journal = GuessJournal.open(directory, 256)) {
+            for (long id = 0; id < 200; id++) {
+                GameSession session = new GameSession("WORD" + (char) ('A' + id % 26), 10);
+                journal.newGame(id, session);
+                for (int i = 0; i < id % 7; i++) {
+                    char letter = (char) ('A' + (id + i * 3) % 26);
+                    journal.guess(id, letter);
+                    session.guess(letter);
+                }
+                if (!session.isOver()) {
+                    expected.put(id, session);
+                }
+                if (id % 10 == 0) {
+                    journal.sync();
+                }
+            }
+        }
+        assertTrue(Files.exists(directory.resolve("snapshot.dat")));
+        try (GuessJournal journal = GuessJournal.open(directory)) {
+            Map<Long, GameSession> recovered = journal.getRecovered();
+            assertEquals(expected.keySet(), recovered.keySet());
+            for (Map.Entry<Long, GameSession> entry : expected.entrySet()) {
+                GameSession game = recovered.get(entry.getKey());
+                assertEquals(entry.getValue().getWord(), game.getWord());
+                assertEquals(entry.getValue().getGuessedLetters(), game.getGuessedLetters());
+                assertEquals(entry.getValue().getRemainingGuesses(), game.getRemainingGuesses());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SaveFileTest {
+    @TempDir
+    Path directory;
+
+    private static GameSession game(String word, int guessesAllowed, String guesses) {
+        GameSession session = new GameSession(word, guessesAllowed);
+        for (char letter : guesses.toCharArray()) {
+            session.guess(letter);
+        }
+        return session;
+    }
+
+    private static void assertSameGame(GameSession expected, GameSession actual) {
+        assertEquals(expected.getWord(), actual.getWord());
+        assertEquals(expected.getGuessesAllowed(), actual.getGuessesAllowed());
+        assertEquals(expected.getRemainingGuesses(), actual.getRemainingGuesses());
+        assertEquals(expected.getGuessedLetters(), actual.getGuessedLetters());
+        assertEquals(expected.getRevealed(), actual.getRevealed());
+    }
+
+    @Test
+    void savedGamesLoadTheSame() throws IOException {
+        List<GameSession> games = Arrays.asList(game("HANGMAN", 10, ""), game("JAVA", 10, "AZQ"),
+                game("SPHINX", 6, "SPHINX"), game("QUIZ", 3, "ABC"), game("LONGER", 200, "XYZWV"),
+                game("ABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKLMNOPQRSTUVWXYZABCDEFGHIJKL", 255, "AZ"));
+        Path path = directory.resolve("games.hng");
+        SaveFile.saveAll(path, games);
+        List<GameSession> loaded = SaveFile.loadAll(path);
+        assertEquals(games.size(), loaded.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertSameGame(games.get(i), loaded.get(i));
+        }
+    }
+
+    @Test
+    void moreThan127GuessesAllowedStayPositive() throws IOException {
+        GameSession game = game("WORD", 200, "XQ");
+        GameSession loaded = SaveFile.decode(SaveFile.encode(List.of(game))).get(0);
+        assertEquals(200, loaded.getGuessesAllowed());
+        assertEquals(198, loaded.getRemainingGuesses());
+    }
+
+    @Test
+    void guessesAllowedMustFitTheFormat() {
+        assertThrows(IllegalArgumentException.class, () -> new GameSession("WORD", 256));
+        assertThrows(IllegalArgumentException.class, () -> new GameSession("WORD", 0));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws IOException {
+        byte[] saved = bytes(SaveFile.encode(List.of(game("HANGMAN", 10, "AN"), game("JAVA", 10, "J"))));
+        for (int length = 0; length < saved.length; length++) {
+            Path path = directory.resolve("cut" + length + ".hng");
+            Files.write(path, Arrays.copyOf(saved, length));
+            assertThrows(IOException.class, () -> SaveFile.loadAll(path), "cut to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void corruptFilesAreRejected() throws IOException {
+        byte[] saved = bytes(SaveFile.encode(List.of(game("HANGMAN", 10, "AN"))));
+        for (int i = 0; i < saved.length; i++) {
+            byte[] corrupt = saved.clone();
+            corrupt[i] ^= 0x10;
+            assertThrows(IOException.class, () -> SaveFile.decode(ByteBuffer.wrap(corrupt)), "byte " + i);
+        }
+    }
+
+    @Test
+    void oldTextSavesStillLoad() throws IOException {
+        //HELLO with H and E found and Z missed: the revealed letters, the wrong guesses, then the guessed letters
+        Path path = directory.resolve("old.hng");
+        Files.write(path, "HELLO 2 H E 1 3 7 4 25".getBytes(StandardCharsets.US_ASCII));
+        assertSameGame(game("HELLO", GameSession.DEFAULT_GUESSES_ALLOWED, "HEZ"), SaveFile.load(path));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void gamesOverTheLimitAreSpilledAndReadBackIn() throws IOException {
+        SessionStore store = new SessionStore(directory, 4, 60_000);
+        for (long id = 0; id < 10; id++) {
+            store.put(id, new GameSession("WORD" + (char) ('A' + id), 10));
+        }
+        assertEquals(4, store.getInMemoryCount());
+        assertEquals(6, store.getSpilledCount());
+        assertEquals(10, store.size());
+        for (long id = 0; id < 10; id++) {
+            long game = id;
+            store.apply(id, session -> session.guess((char) ('A' + game)));
+        }
+        for (long id = 0; id < 10; id++) {
+            long game = id;
+            assertEquals("WORD" + (char) ('A' + id), store.apply(id, GameSession::getWord));
+            assertEquals(true, store.apply(id, session -> session.isGuessed((char) ('A' + game))));
+        }
+        assertEquals(10, store.size());
+    }
+
+    @Test
+    void removedGamesAreGoneFromMemoryAndDisk() throws IOException {
+        SessionStore store = new SessionStore(directory, 1, 60_000);
+        store.put(1, new GameSession("SPILLED", 10));
+        store.put(2, new GameSession("KEPT", 10));
+        assertTrue(store.remove(1));
+        assertTrue(store.remove(2));
+        assertFalse(store.remove(1));
+        assertEquals(0, store.size());
+        assertThrows(NoSuchElementException.class, () -> store.apply(1, GameSession::getWord));
+    }
+
+    @Test
+    void gamesSpilledByAnEarlierRunAreNotHandedOut() throws IOException {
+        SessionStore earlier = new SessionStore(directory, 1, 60_000);
+        earlier.put(1, new GameSession("EARLIER", 10));
+        earlier.put(2, new GameSession("KEPT", 10));
+        assertEquals(1, earlier.getSpilledCount());
+
+        SessionStore store = new SessionStore(directory, 1, 60_000);
+        assertThrows(NoSuchElementException.class, () -> store.apply(1, GameSession::getWord));
+        assertEquals(0, store.getSpilledCount());
+    }
+
+    /**
+     * Lots of threads guessing in more games than fit in memory, so games are spilled and read back in while others
+     * use them. Every guess has to land in its game exactly once.
+     */
+    @Test
+    void concurrentGuessesAreNeverLost() throws Exception {
+        SessionStore store = new SessionStore(directory, 8, 60_000);
+        int games = 64;
+        for (long id = 0; id < games; id++) {
+            store.put(id, new GameSession("ABCDEFGHIJKLMNOPQRSTUVWXYZ", 26));
+        }
+        List<Future<?>> players = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int player = 0; player < 26; player++) {
+                char letter = (char) ('A' + player);
+                players.add(executor.submit(() -> {
+                    for (long id = 0; id < games; id++) {
+                        store.apply(id, session -> session.guess(letter));
+                    }
+                }));
+            }
+            for (Future<?> player : players) {
+                player.get();
+            }
+        }
+        for (long id = 0; id < games; id++) {
+            assertEquals(true, store.apply(id, GameSession::isWon), "game " + id);
+        }
+        assertEquals(games, store.size());
+    }
+}
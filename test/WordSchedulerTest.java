@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordSchedulerTest {
+    private static final int[] SIZES = {1, 2, 3, 7, 64, 65, 1000, 4097, (1 << 20) + 3};
+
+    /**
+     * @return the words of a round of the scheduler, checking each one is handed out exactly once.
+     */
+    private static int[] round(WordScheduler scheduler) {
+        int size = scheduler.getSize();
+        int[] words = new int[size];
+        BitSet seen = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            words[i] = scheduler.next();
+            assertTrue(words[i] >= 0 && words[i] < size, "word " + words[i] + " of " + size);
+            assertFalse(seen.get(words[i]), "word " + words[i] + " of " + size + " handed out twice");
+            seen.set(words[i]);
+        }
+        assertEquals(size, seen.cardinality());
+        return words;
+    }
+
+    @Test
+    void everyWordIsHandedOutOnceARound() {
+        for (int size : SIZES) {
+            for (long seed : new long[] {0, 1, -1, 0x1234_5678_9ABC_DEF0L}) {
+                WordScheduler scheduler = new WordScheduler(size, seed);
+                int[] first = round(scheduler);
+                int[] second = round(scheduler);
+                if (size > 64) {
+                    assertFalse(Arrays.equals(first, second), "each round has its own order");
+                }
+            }
+        }
+    }
+
+    @Test
+    void theSameSeedGivesTheSameWords() {
+        for (int size : SIZES) {
+            WordScheduler scheduler = new WordScheduler(size, 42);
+            WordScheduler again = new WordScheduler(size, 42);
+            for (int i = 0; i < Math.min(size * 3, 10_000); i++) {
+                int word = scheduler.next();
+                assertEquals(word, again.next());
+                assertEquals(word, scheduler.wordAt(i));
+            }
+            WordScheduler resumed = new WordScheduler(size, 42, scheduler.getCursor());
+            assertEquals(scheduler.next(), resumed.next(), "carries on from a stored cursor");
+        }
+    }
+
+    @Test
+    void differentSeedsGiveDifferentOrders() {
+        int size = 1000;
+        WordScheduler scheduler = new WordScheduler(size, 1);
+        WordScheduler other = new WordScheduler(size, 2);
+        int same = 0;
+        for (int i = 0; i < size; i++) {
+            if (scheduler.next() == other.next()) {
+                same++;
+            }
+        }
+        assertTrue(same < 20, same + " of " + size + " words in the same place");
+    }
+
+    @Test
+    void noWordOfTheDayRepeatsUntilAllHaveBeen() {
+        int size = 365;
+        BitSet seen = new BitSet(size);
+        LocalDate first = LocalDate.ofEpochDay(size * 60L);  //Rounds start every size days from the epoch
+        for (int day = 0; day < size; day++) {
+            int word = WordScheduler.dailyWord(size, first.plusDays(day));
+            assertFalse(seen.get(word), "word " + word + " on day " + day);
+            seen.set(word);
+        }
+        LocalDate sameDay = LocalDate.of(first.getYear(), first.getMonth(), first.getDayOfMonth());
+        assertEquals(WordScheduler.dailyWord(size, first), WordScheduler.dailyWord(size, sameDay));
+    }
+}